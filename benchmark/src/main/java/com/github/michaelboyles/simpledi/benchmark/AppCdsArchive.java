@@ -0,0 +1,100 @@
+package com.github.michaelboyles.simpledi.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * Creates an application class data sharing (AppCDS) archive for an application which uses a generated context. The
+ * class list which the annotation processor writes to {@value #CLASS_LIST_RESOURCE} is appended to the JDK's default
+ * class list, and the JVM dumps every class on the combined list into the archive. Run the application with
+ * {@code -XX:SharedArchiveFile=<archive>} and the same classpath to load those classes from the archive.
+ * <p>
+ * Usage: {@code AppCdsArchive <archive> [classpath]}. The classpath must only contain jars, and defaults to the jars on
+ * this program's classpath.
+ */
+public class AppCdsArchive {
+    static final String CLASS_LIST_RESOURCE = "META-INF/simpledi/classlist";
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 1) {
+            System.err.println("Usage: AppCdsArchive <archive> [classpath]");
+            System.exit(2);
+        }
+        List<String> classpath = args.length > 1 ? Arrays.asList(args[1].split(File.pathSeparator)) : jarsOnClasspath();
+        create(Path.of(args[0]), classpath);
+        System.out.println("Created " + args[0]);
+    }
+
+    /**
+     * Create an archive of the classes used by the given classpath.
+     */
+    static void create(Path archive, List<String> classpath) throws IOException, InterruptedException {
+        List<String> classes = new ArrayList<>();
+        Path jdkClassList = Path.of(System.getProperty("java.home"), "lib", "classlist");
+        if (Files.exists(jdkClassList)) {
+            classes.addAll(Files.readAllLines(jdkClassList));
+        }
+        List<String> contextClasses = readContextClassList(classpath);
+        if (contextClasses.isEmpty()) {
+            throw new IllegalStateException("No jar on the classpath contains " + CLASS_LIST_RESOURCE);
+        }
+        classes.addAll(contextClasses);
+
+        Path classList = archive.resolveSibling(archive.getFileName() + ".classlist");
+        Files.createDirectories(archive.toAbsolutePath().getParent());
+        Files.write(classList, classes);
+
+        Process process = new ProcessBuilder(
+            javaExecutable(),
+            "-Xshare:dump",
+            "-XX:SharedClassListFile=" + classList,
+            "-XX:SharedArchiveFile=" + archive,
+            "-cp", String.join(File.pathSeparator, classpath)
+        )
+            .redirectErrorStream(true)
+            .start();
+        String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        if (process.waitFor() != 0) {
+            throw new IllegalStateException("Failed to create " + archive + ":\n" + output);
+        }
+    }
+
+    private static List<String> readContextClassList(List<String> classpath) throws IOException {
+        List<String> classes = new ArrayList<>();
+        for (String entry : classpath) {
+            try (JarFile jar = new JarFile(entry)) {
+                JarEntry classList = jar.getJarEntry(CLASS_LIST_RESOURCE);
+                if (classList == null) continue;
+                try (InputStream in = jar.getInputStream(classList)) {
+                    new String(in.readAllBytes(), StandardCharsets.UTF_8).lines()
+                        .filter(line -> !line.isBlank())
+                        .forEach(classes::add);
+                }
+            }
+        }
+        return classes;
+    }
+
+    /**
+     * Get the jars on this program's classpath. Directories are left out because the JVM can't archive classes loaded
+     * from them.
+     */
+    static List<String> jarsOnClasspath() {
+        return Arrays.stream(System.getProperty("java.class.path").split(File.pathSeparator))
+            .filter(entry -> entry.endsWith(".jar"))
+            .toList();
+    }
+
+    static String javaExecutable() {
+        return Path.of(System.getProperty("java.home"), "bin", "java").toString();
+    }
+}
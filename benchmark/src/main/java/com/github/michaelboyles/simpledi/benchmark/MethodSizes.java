@@ -0,0 +1,83 @@
+package com.github.michaelboyles.simpledi.benchmark;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reads the size of each method's bytecode from a class file. The JVM refuses to load methods larger than 64KB, and
+ * the JIT compiler ignores methods larger than 8KB by default, so this is a useful thing to keep an eye on in generated
+ * code.
+ */
+class MethodSizes {
+    private MethodSizes() {
+    }
+
+    /**
+     * @return A map of method name and descriptor to the length of its bytecode, in bytes.
+     */
+    public static Map<String, Integer> read(InputStream classFile) throws IOException {
+        DataInputStream in = new DataInputStream(classFile);
+        if (in.readInt() != 0xCAFEBABE) throw new IOException("Not a class file");
+        in.readUnsignedShort(); // minor version
+        in.readUnsignedShort(); // major version
+
+        int constantPoolCount = in.readUnsignedShort();
+        String[] utf8Constants = new String[constantPoolCount];
+        for (int i = 1; i < constantPoolCount; ++i) {
+            int tag = in.readUnsignedByte();
+            switch (tag) {
+                case 1 -> utf8Constants[i] = in.readUTF();
+                case 7, 8, 16, 19, 20 -> in.skipBytes(2);
+                case 15 -> in.skipBytes(3);
+                case 3, 4, 9, 10, 11, 12, 17, 18 -> in.skipBytes(4);
+                case 5, 6 -> {
+                    in.skipBytes(8);
+                    ++i; // Longs and doubles take two slots
+                }
+                default -> throw new IOException("Unknown constant pool tag " + tag);
+            }
+        }
+
+        in.skipBytes(6); // access flags, this class, super class
+        in.skipBytes(2 * in.readUnsignedShort()); // interfaces
+
+        int numFields = in.readUnsignedShort();
+        for (int i = 0; i < numFields; ++i) {
+            in.skipBytes(6); // access flags, name, descriptor
+            skipAttributes(in);
+        }
+
+        Map<String, Integer> methodToSize = new LinkedHashMap<>();
+        int numMethods = in.readUnsignedShort();
+        for (int i = 0; i < numMethods; ++i) {
+            in.skipBytes(2); // access flags
+            String name = utf8Constants[in.readUnsignedShort()];
+            String descriptor = utf8Constants[in.readUnsignedShort()];
+            int numAttributes = in.readUnsignedShort();
+            for (int j = 0; j < numAttributes; ++j) {
+                String attributeName = utf8Constants[in.readUnsignedShort()];
+                int length = in.readInt();
+                if ("Code".equals(attributeName)) {
+                    in.skipBytes(4); // max stack, max locals
+                    methodToSize.put(name + descriptor, in.readInt());
+                    in.skipBytes(length - 8);
+                }
+                else {
+                    in.skipBytes(length);
+                }
+            }
+        }
+        return methodToSize;
+    }
+
+    private static void skipAttributes(DataInputStream in) throws IOException {
+        int numAttributes = in.readUnsignedShort();
+        for (int i = 0; i < numAttributes; ++i) {
+            in.skipBytes(2);
+            in.skipBytes(in.readInt());
+        }
+    }
+}
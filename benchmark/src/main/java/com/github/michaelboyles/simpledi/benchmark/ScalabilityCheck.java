@@ -0,0 +1,220 @@
+package com.github.michaelboyles.simpledi.benchmark;
+
+import com.github.michaelboyles.simpledi.SingletonProcessor;
+
+import javax.annotation.processing.Completion;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.Processor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Checks how the annotation processor copes with large modules. Synthetic sources are generated at a few different
+ * sizes and compiled in-process with the processor. The check fails if, at the largest size, processing time, peak
+ * heap or the size of any generated method exceed a threshold, or if processing time grows too quickly as the number
+ * of beans increases.
+ * <p>
+ * Each setting can be overridden with a system property, e.g. {@code -Dsimpledi.scalability.beans=10000}.
+ */
+public class ScalabilityCheck {
+    private static final String PROPERTY_PREFIX = "simpledi.scalability.";
+
+    private final int numBeans = intProperty("beans", 5000);
+    private final int numInterfaces = intProperty("interfaces", 500);
+    private final int hierarchyDepth = intProperty("hierarchyDepth", 10);
+    private final int collectionEvery = intProperty("collectionEvery", 50);
+    private final long maxProcessingMillis = intProperty("maxProcessingMillis", 5000);
+    private final long maxPeakHeapMb = intProperty("maxPeakHeapMb", 1024);
+    private final int maxMethodBytes = intProperty("maxMethodBytes", 32 * 1024);
+    private final double maxScalingExponent = doubleProperty("maxScalingExponent", 1.5);
+
+    public static void main(String[] args) throws IOException {
+        List<String> failures = new ScalabilityCheck().run();
+        if (!failures.isEmpty()) {
+            System.err.println("Scalability check failed:");
+            failures.forEach(failure -> System.err.println("  " + failure));
+            System.exit(1);
+        }
+        System.out.println("Scalability check passed");
+    }
+
+    private List<String> run() throws IOException {
+        // Warm up the compiler so that the first measurement isn't dominated by class loading and the JIT
+        compile(numBeans / 8);
+
+        Result quarter = compile(numBeans / 4);
+        Result full = compile(numBeans);
+
+        List<String> failures = new ArrayList<>(full.errors());
+        if (full.processingMillis() > maxProcessingMillis) {
+            failures.add("Processing took %dms, limit is %dms".formatted(full.processingMillis(), maxProcessingMillis));
+        }
+        if (full.peakHeapMb() > maxPeakHeapMb) {
+            failures.add("Peak heap was %dMB, limit is %dMB".formatted(full.peakHeapMb(), maxPeakHeapMb));
+        }
+        full.methodSizes().forEach((method, size) -> {
+            if (size > maxMethodBytes) {
+                failures.add("Generated method %s is %d bytes, limit is %d".formatted(method, size, maxMethodBytes));
+            }
+        });
+        // If time is proportional to N^k, then quadrupling N multiplies time by 4^k
+        double ratio = (double) Math.max(full.processingMillis(), 1) / Math.max(quarter.processingMillis(), 1);
+        double exponent = Math.log(ratio) / Math.log(4);
+        System.out.printf("Processing time scales with approximately N^%.2f%n", exponent);
+        if (exponent > maxScalingExponent) {
+            failures.add("Processing time scales with N^%.2f, limit is N^%.2f".formatted(exponent, maxScalingExponent));
+        }
+        return failures;
+    }
+
+    private Result compile(int beans) throws IOException {
+        SyntheticSources sources = new SyntheticSources(beans, numInterfaces, hierarchyDepth, collectionEvery);
+        Path outputDir = Files.createTempDirectory("simpledi-scalability");
+        try {
+            JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+            DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+            JavaCompiler.CompilationTask task = compiler.getTask(
+                null, null, diagnostics,
+                List.of("-classpath", System.getProperty("java.class.path"), "-d", outputDir.toString()),
+                null,
+                sources.generate()
+            );
+            TimingProcessor processor = new TimingProcessor(new SingletonProcessor());
+            task.setProcessors(List.of(processor));
+
+            List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .toList();
+            System.gc();
+            heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+            long start = System.nanoTime();
+            boolean success = task.call();
+            long compileMillis = (System.nanoTime() - start) / 1_000_000;
+            long peakHeapMb = heapPools.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum() / (1024 * 1024);
+
+            List<String> errors = diagnostics.getDiagnostics().stream()
+                .filter(diagnostic -> diagnostic.getKind() == Diagnostic.Kind.ERROR)
+                .map(diagnostic -> diagnostic.getMessage(null))
+                .toList();
+            Map<String, Integer> methodSizes = success ? readContextMethodSizes(outputDir) : Map.of();
+            Result result = new Result(processor.millis(), compileMillis, peakHeapMb, methodSizes, errors);
+            System.out.printf(
+                "%d beans: processing %dms, total compilation %dms, peak heap %dMB, "
+                    + "largest generated method %d bytes%s%n",
+                beans, result.processingMillis(), result.compileMillis(), result.peakHeapMb(),
+                methodSizes.values().stream().max(Comparator.naturalOrder()).orElse(0),
+                success ? "" : ", FAILED"
+            );
+            return result;
+        }
+        finally {
+            try (Stream<Path> files = Files.walk(outputDir)) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    private static Map<String, Integer> readContextMethodSizes(Path outputDir) throws IOException {
+        try (Stream<Path> files = Files.walk(outputDir)) {
+            Path contextClass = files
+                .filter(file -> file.getFileName().toString().equals("SimpleDIContext.class"))
+                .findFirst()
+                .orElseThrow(() -> new IOException("No context was generated"));
+            try (InputStream in = Files.newInputStream(contextClass)) {
+                return MethodSizes.read(in);
+            }
+        }
+    }
+
+    private static int intProperty(String name, int defaultValue) {
+        return Integer.getInteger(PROPERTY_PREFIX + name, defaultValue);
+    }
+
+    private static double doubleProperty(String name, double defaultValue) {
+        String value = System.getProperty(PROPERTY_PREFIX + name);
+        return value == null ? defaultValue : Double.parseDouble(value);
+    }
+
+    private record Result(long processingMillis, long compileMillis, long peakHeapMb,
+                          Map<String, Integer> methodSizes, List<String> errors) {
+    }
+
+    /**
+     * Wraps a processor to measure the time spent inside it, as distinct from the rest of compilation.
+     */
+    private static class TimingProcessor implements Processor {
+        private final Processor delegate;
+        private long nanos;
+
+        TimingProcessor(Processor delegate) {
+            this.delegate = delegate;
+        }
+
+        long millis() {
+            return nanos / 1_000_000;
+        }
+
+        @Override
+        public Set<String> getSupportedOptions() {
+            return delegate.getSupportedOptions();
+        }
+
+        @Override
+        public Set<String> getSupportedAnnotationTypes() {
+            return delegate.getSupportedAnnotationTypes();
+        }
+
+        @Override
+        public SourceVersion getSupportedSourceVersion() {
+            return delegate.getSupportedSourceVersion();
+        }
+
+        @Override
+        public void init(ProcessingEnvironment processingEnv) {
+            long start = System.nanoTime();
+            delegate.init(processingEnv);
+            nanos += System.nanoTime() - start;
+        }
+
+        @Override
+        public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+            long start = System.nanoTime();
+            try {
+                return delegate.process(annotations, roundEnv);
+            }
+            finally {
+                nanos += System.nanoTime() - start;
+            }
+        }
+
+        @Override
+        public Iterable<? extends Completion> getCompletions(Element element, AnnotationMirror annotation,
+                                                             ExecutableElement member, String userText) {
+            return delegate.getCompletions(element, annotation, member, userText);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.github.michaelboyles.simpledi.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compares the startup of the sample application with and without an AppCDS archive created by
+ * {@link AppCdsArchive}. Each run is a new JVM, which creates the context and exits. Runs with and without the archive
+ * alternate, so that both are equally affected by anything else happening on the machine. Both the wall-clock time of
+ * the whole JVM and the time to create the context, as reported by the application, are compared.
+ * <p>
+ * Each setting can be overridden with a system property, e.g. {@code -Dsimpledi.startup.runs=50}.
+ */
+public class StartupBenchmark {
+    private static final String PROPERTY_PREFIX = "simpledi.startup.";
+    private static final Pattern CONTEXT_TIME = Pattern.compile("Created context with \\d+ beans in (\\d+)us");
+
+    private final int runs = Integer.getInteger(PROPERTY_PREFIX + "runs", 20);
+    private final String mainClass = System.getProperty(
+        PROPERTY_PREFIX + "mainClass", "com.github.michaelboyles.simpledi.test.Main"
+    );
+    private final Path archive = Path.of(System.getProperty(PROPERTY_PREFIX + "archive", "target/simpledi.jsa"));
+    private final List<String> classpath = AppCdsArchive.jarsOnClasspath();
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        new StartupBenchmark().run();
+    }
+
+    private void run() throws IOException, InterruptedException {
+        AppCdsArchive.create(archive, classpath);
+        checkArchiveIsUsed();
+
+        // Warm up the file system cache
+        launch(false);
+        launch(true);
+
+        long[][] without = new long[2][runs];
+        long[][] with = new long[2][runs];
+        for (int i = 0; i < runs; ++i) {
+            Run run = launch(false);
+            without[0][i] = run.wallMicros();
+            without[1][i] = run.contextMicros();
+            run = launch(true);
+            with[0][i] = run.wallMicros();
+            with[1][i] = run.contextMicros();
+        }
+        System.out.printf("%d runs each, median (min)%n", runs);
+        System.out.printf("%-18s %18s %18s%n", "", "JVM wall-clock", "context creation");
+        printRow("Without archive", without);
+        printRow("With archive", with);
+    }
+
+    // If the classpath doesn't match the one the archive was created with, the JVM silently ignores the archive
+    private void checkArchiveIsUsed() throws IOException, InterruptedException {
+        String output = launch(true, "-Xlog:class+load=info").output();
+        if (!output.contains("com.example.SimpleDIContext source: shared objects file")) {
+            throw new IllegalStateException("The context wasn't loaded from " + archive + ":\n" + output);
+        }
+    }
+
+    private Run launch(boolean useArchive, String... jvmOptions) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(AppCdsArchive.javaExecutable());
+        if (useArchive) {
+            command.add("-XX:SharedArchiveFile=" + archive);
+        }
+        command.addAll(Arrays.asList(jvmOptions));
+        command.addAll(List.of("-cp", String.join(File.pathSeparator, classpath), mainClass));
+
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        int exitCode = process.waitFor();
+        long wallMicros = (System.nanoTime() - start) / 1000;
+        Matcher matcher = CONTEXT_TIME.matcher(output);
+        if (exitCode != 0 || !matcher.find()) {
+            throw new IllegalStateException("Unexpected output from " + mainClass + ":\n" + output);
+        }
+        return new Run(wallMicros, Long.parseLong(matcher.group(1)), output);
+    }
+
+    private static void printRow(String label, long[][] times) {
+        System.out.printf("%-18s %18s %18s%n", label, format(times[0]), format(times[1]));
+    }
+
+    private static String format(long[] micros) {
+        long[] sorted = micros.clone();
+        Arrays.sort(sorted);
+        return "%.2fms (%.2fms)".formatted(sorted[sorted.length / 2] / 1000.0, sorted[0] / 1000.0);
+    }
+
+    private record Run(long wallMicros, long contextMicros, String output) {
+    }
+}
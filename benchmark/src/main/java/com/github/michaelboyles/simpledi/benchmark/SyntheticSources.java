@@ -0,0 +1,80 @@
+package com.github.michaelboyles.simpledi.benchmark;
+
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * Generates the source of a large, synthetic module of beans. Half of the beans are leaves with no dependencies, which
+ * implement interfaces from a number of deep interface hierarchies and extend classes from a deep class hierarchy. The
+ * other half are services, each of which depends on the previous service, on a service roughly half-way back, on one
+ * leaf and, every so often, on a collection of every leaf implementing the root of one of the interface hierarchies.
+ *
+ * @param numBeans The total number of beans.
+ * @param numInterfaces The total number of interfaces.
+ * @param hierarchyDepth The depth of each interface hierarchy, and of the class hierarchy.
+ * @param collectionEvery How often, in services, to inject a collection.
+ */
+record SyntheticSources(int numBeans, int numInterfaces, int hierarchyDepth, int collectionEvery) {
+    private static final String PACKAGE = "synthetic";
+
+    public List<JavaFileObject> generate() {
+        List<JavaFileObject> sources = new ArrayList<>();
+        for (int i = 0; i < numInterfaces; ++i) {
+            String extendsClause = isHierarchyRoot(i) ? "" : " extends Api" + (i - 1);
+            sources.add(source("Api" + i, "public interface Api%d%s {}".formatted(i, extendsClause)));
+        }
+        for (int i = 0; i < hierarchyDepth; ++i) {
+            String extendsClause = (i == 0) ? "" : " extends Base" + (i - 1);
+            sources.add(source("Base" + i, "public abstract class Base%d%s {}".formatted(i, extendsClause)));
+        }
+        int numLeaves = numLeaves();
+        for (int i = 0; i < numLeaves; ++i) {
+            sources.add(source("Leaf" + i, """
+                @javax.inject.Singleton
+                public class Leaf%d extends Base%d implements Api%d {}""".formatted(
+                    i, i % hierarchyDepth, i % numInterfaces
+                )
+            ));
+        }
+        for (int i = 0; i < numBeans - numLeaves; ++i) {
+            StringJoiner params = new StringJoiner(", ");
+            if (i > 0) params.add("Service%d previous".formatted(i - 1));
+            if (i > 2) params.add("Service%d half".formatted(i / 2));
+            params.add("Leaf%d leaf".formatted(i % numLeaves));
+            if (i % collectionEvery == 0) {
+                int root = (i / collectionEvery * hierarchyDepth) % numInterfaces;
+                params.add("java.util.List<Api%d> all".formatted(root - (root % hierarchyDepth)));
+            }
+            sources.add(source("Service" + i, """
+                @javax.inject.Singleton
+                public class Service%d {
+                    public Service%d(%s) {}
+                }""".formatted(i, i, params)
+            ));
+        }
+        return sources;
+    }
+
+    public int numLeaves() {
+        return numBeans / 2;
+    }
+
+    private boolean isHierarchyRoot(int interfaceIdx) {
+        return interfaceIdx % hierarchyDepth == 0;
+    }
+
+    private static JavaFileObject source(String className, String body) {
+        String code = "package " + PACKAGE + ";\n\n" + body + "\n";
+        URI uri = URI.create("string:///" + PACKAGE + "/" + className + JavaFileObject.Kind.SOURCE.extension);
+        return new SimpleJavaFileObject(uri, JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return code;
+            }
+        };
+    }
+}
@@ -23,6 +23,11 @@ class BasicDependency implements Dependency {
         return allBeans();
     }
 
+    @Override
+    public EdgeKind edgeKind() {
+        return EdgeKind.BASIC;
+    }
+
     @Override
     public CodeBlock getArgumentExpression(Function<Bean, String> getIdentifier) {
         return CodeBlock.of("$L", getIdentifier.apply(bean));
@@ -5,11 +5,7 @@ import lombok.experimental.Accessors;
 
 import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.TypeElement;
-import javax.lang.model.type.DeclaredType;
-import javax.lang.model.type.TypeKind;
-import javax.lang.model.type.TypeMirror;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.List;
 import java.util.stream.Stream;
 
@@ -21,6 +17,7 @@ import java.util.stream.Stream;
 class Bean {
     private final List<Dependency> dependencies = new ArrayList<>();
     private final List<InjectMethod> injectMethods = new ArrayList<>();
+    private final List<EventListenerMethod> eventListeners = new ArrayList<>();
     private final String name;
     private final TypeElement typeElement;
     private final ExecutableElement constructor;
@@ -33,6 +30,10 @@ class Bean {
         injectMethods.add(injectMethod);
     }
 
+    public void addEventListener(EventListenerMethod eventListener) {
+        eventListeners.add(eventListener);
+    }
+
     /**
      * Get the fully qualified name of the Bean's concrete class.
      */
@@ -41,36 +42,44 @@ class Bean {
     }
 
     /**
-     * Get the fully qualified name of the Bean's concrete class, and all superclasses and interfaces.
+     * Whether the bean is annotated with {@link Shared}.
      */
-    public Collection<String> getAllFqns() {
-        return Stream.concat(
-                Stream.of(typeElement),
-                Stream.concat(
-                    getAllInterfaces().stream(),
-                    getAllSuperclasses().stream()
-                )
-            )
-            .map(type -> type.getQualifiedName().toString())
-            .toList();
+    public boolean isShared() {
+        return typeElement.getAnnotation(Shared.class) != null;
+    }
+
+    /**
+     * Whether the bean is annotated with {@link Refreshable}.
+     */
+    public boolean isRefreshable() {
+        return typeElement.getAnnotation(Refreshable.class) != null;
     }
 
-    private Collection<TypeElement> getAllInterfaces() {
-        return typeElement.getInterfaces().stream().map(this::getElement).toList();
+    /**
+     * Whether the bean is annotated with {@link Striped}.
+     */
+    public boolean isStriped() {
+        return typeElement.getAnnotation(Striped.class) != null;
     }
 
-    private Collection<TypeElement> getAllSuperclasses() {
-        List<TypeElement> superClasses = new ArrayList<>();
-        TypeElement current = typeElement;
-        while (current.getSuperclass().getKind() == TypeKind.DECLARED) {
-            current = getElement(current.getSuperclass());
-            superClasses.add(current);
-        }
-        return superClasses;
+    /**
+     * Get the number of instances of a striped bean, or 0 for the default.
+     */
+    public int getStripeCount() {
+        return typeElement.getAnnotation(Striped.class).value();
     }
 
-    private TypeElement getElement(TypeMirror mirror) {
-        return (TypeElement) ((DeclaredType) mirror).asElement();
+    /**
+     * Get every bean which this bean requires, whether in its constructor, via a Provider, or in an inject method.
+     */
+    public List<Bean> getAllDependencies() {
+        return Stream.concat(
+                dependencies.stream(),
+                injectMethods.stream().flatMap(method -> method.dependencies().stream())
+            )
+            .flatMap(dependency -> dependency.allBeans().stream())
+            .distinct()
+            .toList();
     }
 
     public List<Bean> getProvidedBeans() {
@@ -0,0 +1,77 @@
+package com.github.michaelboyles.simpledi;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.github.michaelboyles.simpledi.ConfigBinder.CONFIG_IDENTIFIER;
+import static com.github.michaelboyles.simpledi.EventDispatchGenerator.EVENT_PARAM_NAME;
+import static com.github.michaelboyles.simpledi.EventDispatchGenerator.EXECUTOR_PARAM_NAME;
+import static com.github.michaelboyles.simpledi.InjectorClassGenerator.BASE_IDENTIFIER;
+import static com.github.michaelboyles.simpledi.InjectorClassGenerator.BEANS_FIELD_NAME;
+import static com.github.michaelboyles.simpledi.InjectorClassGenerator.CHANGED_IDENTIFIER;
+import static com.github.michaelboyles.simpledi.InjectorClassGenerator.DIRTY_IDENTIFIER;
+import static com.github.michaelboyles.simpledi.InjectorClassGenerator.OVERRIDES_IDENTIFIER;
+import static com.github.michaelboyles.simpledi.InjectorClassGenerator.STRIPE_PARAM_NAME;
+import static com.github.michaelboyles.simpledi.InjectorClassGenerator.TEMPLATE_FIELD_NAME;
+
+/**
+ * Assigns each bean a unique identifier, which is used for its variable in the generated code and as its name at
+ * runtime, e.g. in {@code getBeanByName}.
+ */
+class BeanIdentifiers {
+    /**
+     * The names of members and variables in the generated context which aren't beans, so can't be used for a bean.
+     */
+    private static final Set<String> RESERVED_IDENTIFIERS = Set.of(
+        BEANS_FIELD_NAME,
+        CONFIG_IDENTIFIER,
+        TEMPLATE_FIELD_NAME,
+        EXECUTOR_PARAM_NAME,
+        EVENT_PARAM_NAME,
+        STRIPE_PARAM_NAME,
+        BASE_IDENTIFIER,
+        OVERRIDES_IDENTIFIER,
+        CHANGED_IDENTIFIER,
+        DIRTY_IDENTIFIER
+    );
+
+    private final Map<Bean, String> beanToIdentifier = new HashMap<>();
+    private final Set<String> usedIdentifiers = new HashSet<>(RESERVED_IDENTIFIERS);
+
+    // The same class name might exist in different packages, so this guarantees uniqueness of the identifier used for
+    // each bean. Every bean is assigned its identifier up-front, so that reserving other names can't change them
+    BeanIdentifiers(List<Bean> beans) {
+        for (Bean bean : beans) {
+            String fqn = bean.getFqn();
+            String shortName = fqn.substring(fqn.lastIndexOf('.') + 1);
+            String camelCase = shortName.substring(0, 1).toLowerCase() + shortName.substring(1);
+            beanToIdentifier.put(bean, reserve(camelCase));
+        }
+    }
+
+    public String get(Bean bean) {
+        String identifier = beanToIdentifier.get(bean);
+        if (identifier == null) {
+            throw new RuntimeException("No identifier was assigned to bean " + bean.getFqn());
+        }
+        return identifier;
+    }
+
+    /**
+     * Reserve an identifier for a member of the generated context which isn't a bean, so that it's unique.
+     *
+     * @param name The preferred identifier, which is suffixed with a number if it's already used
+     */
+    public String reserve(String name) {
+        String possibleName = name;
+        int attempt = 0;
+        while (usedIdentifiers.contains(possibleName)) {
+            possibleName = name + (++attempt);
+        }
+        usedIdentifiers.add(possibleName);
+        return possibleName;
+    }
+}
@@ -0,0 +1,117 @@
+package com.github.michaelboyles.simpledi;
+
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+
+import javax.lang.model.element.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ * Generates the static {@link BeanMetadata} table of a DI context. Each part of the table is encoded as a string of
+ * comma-separated values, with semicolons between per-bean lists. This is far more compact in the class file than an
+ * array initializer, which would need several instructions per element, and is decoded once when the context class
+ * is initialized.
+ */
+class BeanMetadataGenerator {
+    static final String METADATA_FIELD_NAME = "METADATA";
+    /**
+     * Strings in the constant pool are limited to 65535 bytes of modified UTF-8, which is at most 3 bytes per char.
+     */
+    private static final int MAX_CHUNK_LENGTH = 20_000;
+
+    private final List<Bean> sortedBeans;
+    private final BeanIdentifiers identifiers;
+    private final TypeIndex typeIndex;
+    private final Map<Bean, Integer> beanToIndex = new IdentityHashMap<>();
+
+    BeanMetadataGenerator(List<Bean> sortedBeans, BeanIdentifiers identifiers, TypeIndex typeIndex) {
+        this.sortedBeans = sortedBeans;
+        this.identifiers = identifiers;
+        this.typeIndex = typeIndex;
+        for (int i = 0; i < sortedBeans.size(); ++i) {
+            beanToIndex.put(sortedBeans.get(i), i);
+        }
+    }
+
+    /**
+     * Get the index of the bean in the metadata table.
+     */
+    public int indexOf(Bean bean) {
+        return beanToIndex.get(bean);
+    }
+
+    public FieldSpec getField() {
+        Map<String, Integer> typeToIndex = new HashMap<>();
+        List<String> typeNames = new ArrayList<>();
+        StringJoiner names = new StringJoiner(",");
+        StringJoiner beanToType = new StringJoiner(",");
+        StringJoiner supertypes = new StringJoiner(";");
+        StringJoiner dependencies = new StringJoiner(";");
+        StringJoiner scopes = new StringJoiner(",");
+        for (Bean bean : sortedBeans) {
+            names.add(identifiers.get(bean));
+            beanToType.add(String.valueOf(internType(typeToIndex, typeNames, bean.getFqn())));
+
+            StringJoiner beanSupertypes = new StringJoiner(",");
+            for (String supertype : typeIndex.supertypes(bean)) {
+                beanSupertypes.add(String.valueOf(internType(typeToIndex, typeNames, supertype)));
+            }
+            supertypes.add(beanSupertypes.toString());
+
+            StringJoiner beanDependencies = new StringJoiner(",");
+            for (Bean dependency : bean.getAllDependencies()) {
+                beanDependencies.add(String.valueOf(indexOf(dependency)));
+            }
+            dependencies.add(beanDependencies.toString());
+
+            scopes.add(String.valueOf(getScope(bean)));
+        }
+
+        CodeBlock initializer = CodeBlock.builder()
+            .add("new $T(\n", BeanMetadata.class)
+            .indent().indent()
+            .add("$L,\n", chunks(names.toString()))
+            .add("$L,\n", chunks(String.join(",", typeNames)))
+            .add("$L,\n", chunks(beanToType.toString()))
+            .add("$L,\n", chunks(supertypes.toString()))
+            .add("$L,\n", chunks(dependencies.toString()))
+            .add("$L\n", chunks(scopes.toString()))
+            .unindent().unindent()
+            .add(")")
+            .build();
+        return FieldSpec.builder(BeanMetadata.class, METADATA_FIELD_NAME)
+            .addModifiers(Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+            .initializer(initializer)
+            .build();
+    }
+
+    private static int getScope(Bean bean) {
+        if (bean.isShared()) return BeanMetadata.SCOPE_SHARED;
+        if (bean.isRefreshable()) return BeanMetadata.SCOPE_REFRESHABLE;
+        if (bean.isStriped()) return BeanMetadata.SCOPE_STRIPED;
+        return BeanMetadata.SCOPE_SINGLETON;
+    }
+
+    private static int internType(Map<String, Integer> typeToIndex, List<String> typeNames, String typeName) {
+        return typeToIndex.computeIfAbsent(typeName, k -> {
+            typeNames.add(typeName);
+            return typeNames.size() - 1;
+        });
+    }
+
+    private static CodeBlock chunks(String encoded) {
+        CodeBlock.Builder builder = CodeBlock.builder().add("new $T[] {", String.class);
+        for (int start = 0; start < encoded.length() || start == 0; start += MAX_CHUNK_LENGTH) {
+            if (start > 0) {
+                builder.add(", ");
+            }
+            builder.add("$S", encoded.substring(start, Math.min(encoded.length(), start + MAX_CHUNK_LENGTH)));
+        }
+        return builder.add("}").build();
+    }
+}
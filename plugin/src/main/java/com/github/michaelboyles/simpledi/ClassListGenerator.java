@@ -0,0 +1,109 @@
+package com.github.michaelboyles.simpledi;
+
+import lombok.RequiredArgsConstructor;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ModuleElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static com.github.michaelboyles.simpledi.Const.INJECTOR_CLASS_NAME;
+import static com.github.michaelboyles.simpledi.Const.INJECTOR_PACKAGE_NAME;
+
+/**
+ * Generates a list of the classes which the generated context loads when it starts, one per line as internal names,
+ * which is the format of the JVM's class lists for class data sharing (AppCDS). Classes are listed in the order of the
+ * dependency graph, and each class follows its supertypes, which is the order the JVM loads them. JDK classes are left
+ * out, since they're already in the JDK's own archive. Config records and enums, event types and the context's
+ * builder are listed too, since they load as soon as a context starts or is used.
+ */
+@RequiredArgsConstructor
+class ClassListGenerator {
+    private final List<Bean> sortedBeans;
+    private final Elements elements;
+    private final Types types;
+
+    public String generate() {
+        Set<String> classes = new LinkedHashSet<>();
+        for (Class<?> runtimeClass : getRuntimeClasses()) {
+            addWithSupertypes(classes, elements.getTypeElement(runtimeClass.getCanonicalName()));
+        }
+        String contextName = INJECTOR_PACKAGE_NAME + '.' + INJECTOR_CLASS_NAME;
+        classes.add(toInternalName(contextName));
+        if (sortedBeans.stream().anyMatch(Bean::isShared)) {
+            classes.add(toInternalName(contextName + "$Template"));
+        }
+        classes.add(toInternalName(contextName + "$Builder"));
+        for (Bean bean : sortedBeans) {
+            addWithSupertypes(classes, bean.typeElement());
+        }
+        // Config values and events are created while the context starts, or as soon as it's used
+        for (Bean bean : sortedBeans) {
+            getConfigDependencies(bean)
+                .flatMap(dependency -> dependency.boundTypes().stream())
+                .forEach(type -> addWithSupertypes(classes, type));
+            for (EventListenerMethod listener : bean.eventListeners()) {
+                addWithSupertypes(classes, (TypeElement) types.asElement(listener.eventType()));
+            }
+        }
+        StringBuilder list = new StringBuilder();
+        classes.forEach(clazz -> list.append(clazz).append('\n'));
+        return list.toString();
+    }
+
+    // The runtime classes which the context refers to, which depend on the features its beans use
+    private List<Class<?>> getRuntimeClasses() {
+        Set<Class<?>> classes = new LinkedHashSet<>();
+        classes.add(BeanMetadata.class);
+        for (Bean bean : sortedBeans) {
+            if (bean.isRefreshable()) classes.add(RefreshableProvider.class);
+            if (bean.isStriped()) classes.add(StripedProvider.class);
+            if (!bean.getProvidedBeans().isEmpty()) classes.add(MutableProvider.class);
+            if (getConfigDependencies(bean).findAny().isPresent()) {
+                classes.add(ConfigSource.class);
+            }
+            if (bean.eventListeners().stream().anyMatch(EventListenerMethod::async)) {
+                classes.add(BatchingEventDispatcher.class);
+            }
+        }
+        return List.copyOf(classes);
+    }
+
+    private static Stream<ConfigDependency> getConfigDependencies(Bean bean) {
+        return Stream.concat(
+                bean.dependencies().stream(),
+                bean.injectMethods().stream().flatMap(method -> method.dependencies().stream())
+            )
+            .filter(ConfigDependency.class::isInstance)
+            .map(ConfigDependency.class::cast);
+    }
+
+    private void addWithSupertypes(Set<String> classes, TypeElement type) {
+        if (isInJdk(type)) return;
+        String name = toInternalName(elements.getBinaryName(type).toString());
+        if (classes.contains(name)) return;
+        for (TypeMirror supertype : types.directSupertypes(type.asType())) {
+            if (supertype.getKind() == TypeKind.DECLARED) {
+                addWithSupertypes(classes, (TypeElement) ((DeclaredType) supertype).asElement());
+            }
+        }
+        classes.add(name);
+    }
+
+    private boolean isInJdk(Element type) {
+        ModuleElement module = elements.getModuleOf(type);
+        return module != null && !module.isUnnamed();
+    }
+
+    private static String toInternalName(String binaryName) {
+        return binaryName.replace('.', '/');
+    }
+}
@@ -27,6 +27,11 @@ class CollectionDependency implements Dependency {
         return contents;
     }
 
+    @Override
+    public EdgeKind edgeKind() {
+        return EdgeKind.COLLECTION;
+    }
+
     @Override
     public CodeBlock getArgumentExpression(Function<Bean, String> getIdentifier) {
         CodeBlock.Builder arguments = CodeBlock.builder();
@@ -0,0 +1,181 @@
+package com.github.michaelboyles.simpledi;
+
+import com.squareup.javapoet.CodeBlock;
+
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.RecordComponentElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.github.michaelboyles.simpledi.ConfigValue.NO_DEFAULT;
+
+/**
+ * Creates the code which binds a parameter annotated with {@link ConfigValue} to a value from a {@link ConfigSource}.
+ * The conversion for each type is decided at compile-time, so the generated code is a direct call to a typed getter.
+ */
+class ConfigBinder {
+    /**
+     * The identifier of the {@link ConfigSource} in the generated context.
+     */
+    static final String CONFIG_IDENTIFIER = "config";
+
+    private final Types types;
+
+    ConfigBinder(Types types) {
+        this.types = types;
+    }
+
+    public ConfigDependency bind(Bean bean, VariableElement parameter) {
+        ConfigValue annotation = parameter.getAnnotation(ConfigValue.class);
+        List<String> requiredKeys = new ArrayList<>();
+        List<TypeElement> boundTypes = new ArrayList<>();
+        String context = "%s parameter '%s'".formatted(bean.getFqn(), parameter.getSimpleName());
+        CodeBlock expression = bind(
+            parameter.asType(), annotation.value(), annotation.defaultValue(), requiredKeys, boundTypes, context
+        );
+        return new ConfigDependency(expression, requiredKeys, boundTypes);
+    }
+
+    private CodeBlock bind(TypeMirror type, String key, String defaultValue, List<String> requiredKeys,
+                           List<TypeElement> boundTypes, String context) {
+        if (type.getKind().isPrimitive()) {
+            return bindPrimitive(type.getKind(), key, defaultValue, requiredKeys, context);
+        }
+        if (type.getKind() != TypeKind.DECLARED) {
+            throw unsupported(type, context);
+        }
+        TypeElement element = (TypeElement) ((DeclaredType) type).asElement();
+        if (element.getQualifiedName().contentEquals(String.class.getName())) {
+            return getter("getString", key, defaultValue, requiredKeys);
+        }
+        if (element.getKind() == ElementKind.ENUM) {
+            checkEnumDefaultValue(element, defaultValue, context);
+            boundTypes.add(element);
+            addIfRequired(requiredKeys, key, defaultValue);
+            return CodeBlock.of(
+                "$L.getEnum($S, $L, $T::valueOf)", CONFIG_IDENTIFIER, key, defaultValueLiteral(defaultValue), element
+            );
+        }
+        if (element.getKind() == ElementKind.RECORD) {
+            return bindRecord(element, key, defaultValue, requiredKeys, boundTypes, context);
+        }
+        try {
+            TypeKind unboxed = types.unboxedType(type).getKind();
+            return bindPrimitive(unboxed, key, defaultValue, requiredKeys, context);
+        }
+        catch (IllegalArgumentException e) {
+            throw unsupported(type, context);
+        }
+    }
+
+    private CodeBlock bindPrimitive(TypeKind kind, String key, String defaultValue, List<String> requiredKeys,
+                                    String context) {
+        String getter = switch (kind) {
+            case BOOLEAN -> "getBoolean";
+            case BYTE -> "getByte";
+            case SHORT -> "getShort";
+            case INT -> "getInt";
+            case LONG -> "getLong";
+            case CHAR -> "getChar";
+            case FLOAT -> "getFloat";
+            case DOUBLE -> "getDouble";
+            default -> throw new RuntimeException("Unsupported config type %s for %s".formatted(kind, context));
+        };
+        checkDefaultValue(kind, defaultValue, context);
+        return getter(getter, key, defaultValue, requiredKeys);
+    }
+
+    private CodeBlock bindRecord(TypeElement record, String key, String defaultValue, List<String> requiredKeys,
+                                 List<TypeElement> boundTypes, String context) {
+        if (!NO_DEFAULT.equals(defaultValue)) {
+            throw new RuntimeException("Default values are not supported for record %s in %s".formatted(
+                record.getQualifiedName(), context
+            ));
+        }
+        if (!record.getTypeParameters().isEmpty()) {
+            throw new RuntimeException("Generic record %s in %s is not supported".formatted(
+                record.getQualifiedName(), context
+            ));
+        }
+        boundTypes.add(record);
+        CodeBlock.Builder builder = CodeBlock.builder().add("new $T(", record);
+        List<? extends RecordComponentElement> components = record.getRecordComponents();
+        for (int i = 0; i < components.size(); ++i) {
+            RecordComponentElement component = components.get(i);
+            String componentKey = key + "." + component.getSimpleName();
+            builder.add(bind(component.asType(), componentKey, NO_DEFAULT, requiredKeys, boundTypes, context));
+            if (i < (components.size() - 1)) {
+                builder.add(", ");
+            }
+        }
+        return builder.add(")").build();
+    }
+
+    private CodeBlock getter(String getter, String key, String defaultValue, List<String> requiredKeys) {
+        addIfRequired(requiredKeys, key, defaultValue);
+        return CodeBlock.of("$L.$L($S, $L)", CONFIG_IDENTIFIER, getter, key, defaultValueLiteral(defaultValue));
+    }
+
+    private static void addIfRequired(List<String> requiredKeys, String key, String defaultValue) {
+        if (NO_DEFAULT.equals(defaultValue)) {
+            requiredKeys.add(key);
+        }
+    }
+
+    private static CodeBlock defaultValueLiteral(String defaultValue) {
+        if (NO_DEFAULT.equals(defaultValue)) {
+            return CodeBlock.of("$T.NO_DEFAULT", ConfigValue.class);
+        }
+        return CodeBlock.of("$S", defaultValue);
+    }
+
+    // Catch bad defaults at compile-time rather than when the context starts
+    private static void checkDefaultValue(TypeKind kind, String defaultValue, String context) {
+        if (NO_DEFAULT.equals(defaultValue)) return;
+        try {
+            switch (kind) {
+                case BYTE -> Byte.parseByte(defaultValue);
+                case SHORT -> Short.parseShort(defaultValue);
+                case INT -> Integer.parseInt(defaultValue);
+                case LONG -> Long.parseLong(defaultValue);
+                case FLOAT -> Float.parseFloat(defaultValue);
+                case DOUBLE -> Double.parseDouble(defaultValue);
+                case CHAR -> {
+                    if (defaultValue.length() != 1) throw new IllegalArgumentException();
+                }
+                case BOOLEAN -> {
+                    if (!"true".equalsIgnoreCase(defaultValue) && !"false".equalsIgnoreCase(defaultValue)) {
+                        throw new IllegalArgumentException();
+                    }
+                }
+                default -> { }
+            }
+        }
+        catch (IllegalArgumentException e) {
+            throw new RuntimeException("Default value '%s' for %s is not a valid %s".formatted(
+                defaultValue, context, kind.toString().toLowerCase()
+            ));
+        }
+    }
+
+    private static void checkEnumDefaultValue(TypeElement enumElement, String defaultValue, String context) {
+        if (NO_DEFAULT.equals(defaultValue)) return;
+        boolean isConstant = enumElement.getEnclosedElements().stream()
+            .anyMatch(e -> e.getKind() == ElementKind.ENUM_CONSTANT && e.getSimpleName().contentEquals(defaultValue));
+        if (!isConstant) {
+            throw new RuntimeException("Default value '%s' for %s is not a constant of %s".formatted(
+                defaultValue, context, enumElement.getQualifiedName()
+            ));
+        }
+    }
+
+    private static RuntimeException unsupported(TypeMirror type, String context) {
+        return new RuntimeException("Unsupported config type %s for %s".formatted(type, context));
+    }
+}
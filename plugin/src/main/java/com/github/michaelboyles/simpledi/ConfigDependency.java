@@ -0,0 +1,39 @@
+package com.github.michaelboyles.simpledi;
+
+import com.squareup.javapoet.CodeBlock;
+
+import javax.lang.model.element.TypeElement;
+import java.util.List;
+import java.util.function.Function;
+
+import static java.util.Collections.emptyList;
+
+/**
+ * A dependency on a configuration value, annotated with {@link ConfigValue}, rather than on another bean.
+ *
+ * @param expression An expression which reads and converts the value.
+ * @param requiredKeys The keys which the value requires, i.e. which have no default.
+ * @param boundTypes The records and enums which the value is converted to, including any within a record.
+ */
+record ConfigDependency(CodeBlock expression, List<String> requiredKeys, List<TypeElement> boundTypes)
+    implements Dependency {
+    @Override
+    public List<Bean> allBeans() {
+        return emptyList();
+    }
+
+    @Override
+    public List<Bean> directBeans() {
+        return emptyList();
+    }
+
+    @Override
+    public EdgeKind edgeKind() {
+        return EdgeKind.CONFIG;
+    }
+
+    @Override
+    public CodeBlock getArgumentExpression(Function<Bean, String> getIdentifier) {
+        return expression;
+    }
+}
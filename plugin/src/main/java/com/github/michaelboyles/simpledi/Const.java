@@ -22,6 +22,24 @@ class Const {
      * The package of the DI injector class which will be generated.
      */
     static final String INJECTOR_PACKAGE_NAME = "com.example";
+    /**
+     * The path of the generated resource which describes the dependency graph as JSON.
+     */
+    static final String GRAPH_JSON_RESOURCE = "META-INF/simpledi/graph.json";
+    /**
+     * The path of the generated resource which describes the dependency graph in Graphviz DOT format.
+     */
+    static final String GRAPH_DOT_RESOURCE = "META-INF/simpledi/graph.dot";
+    /**
+     * The path of the generated resource which lists the classes loaded when the context starts, in the format expected
+     * by the JVM's {@code -XX:SharedClassListFile} option for creating a class data sharing archive.
+     */
+    static final String CLASS_LIST_RESOURCE = "META-INF/simpledi/classlist";
+    /**
+     * The name of the processor option which points to a properties file of bean names to the time taken to construct
+     * that bean, in any unit. If present, the critical path of the context's startup will be calculated.
+     */
+    static final String CONSTRUCTION_TIMES_OPTION = "simpledi.constructionTimes";
     /**
      * A map of Collection implementations to a factory method capable of create an instance of that Collection,
      * ordered from most specific to least specific.
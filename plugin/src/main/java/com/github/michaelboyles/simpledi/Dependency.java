@@ -19,6 +19,12 @@ interface Dependency {
     @CheckReturnValue
     List<Bean> directBeans();
 
+    /**
+     * Get the kind of edge which this dependency forms in the dependency graph.
+     */
+    @CheckReturnValue
+    EdgeKind edgeKind();
+
     /**
      * Get an expression which can be used for auto-wiring this dependency, e.g. in a constructor.
      *
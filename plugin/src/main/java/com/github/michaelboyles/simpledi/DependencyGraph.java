@@ -0,0 +1,211 @@
+package com.github.michaelboyles.simpledi;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * The graph of beans and the dependencies between them, which can be exported as JSON or DOT. If the time it takes to
+ * construct each bean is known, this can also find the critical path: the chain of constructor dependencies which
+ * bounds how quickly the context could start, no matter how many beans were constructed in parallel.
+ */
+class DependencyGraph {
+    private final List<Bean> sortedBeans;
+    private final BeanIdentifiers identifiers;
+    private final Map<Bean, Integer> beanToDepth = new IdentityHashMap<>();
+
+    /**
+     * @param sortedBeans Beans sorted such that every bean comes after the beans its constructor directly requires.
+     */
+    DependencyGraph(List<Bean> sortedBeans, BeanIdentifiers identifiers) {
+        this.sortedBeans = sortedBeans;
+        this.identifiers = identifiers;
+        for (Bean bean : sortedBeans) {
+            int depth = 0;
+            for (Bean dependency : constructorDependencies(bean)) {
+                depth = Math.max(depth, beanToDepth.get(dependency) + 1);
+            }
+            beanToDepth.put(bean, depth);
+        }
+    }
+
+    public List<Edge> edges() {
+        List<Edge> edges = new ArrayList<>();
+        for (Bean bean : sortedBeans) {
+            for (Dependency dependency : bean.dependencies()) {
+                for (Bean target : dependency.allBeans()) {
+                    edges.add(new Edge(bean, target, dependency.edgeKind()));
+                }
+            }
+            for (InjectMethod method : bean.injectMethods()) {
+                for (Dependency dependency : method.dependencies()) {
+                    for (Bean target : dependency.allBeans()) {
+                        edges.add(new Edge(bean, target, EdgeKind.INJECT_METHOD));
+                    }
+                }
+            }
+        }
+        return edges;
+    }
+
+    /**
+     * Get the beans at each depth. Beans at depth 0 require no other beans to be constructed; beans at depth N
+     * require at least one bean at depth N-1.
+     */
+    public List<List<Bean>> levels() {
+        List<List<Bean>> levels = new ArrayList<>();
+        for (Bean bean : sortedBeans) {
+            int depth = beanToDepth.get(bean);
+            while (levels.size() <= depth) {
+                levels.add(new ArrayList<>());
+            }
+            levels.get(depth).add(bean);
+        }
+        return levels;
+    }
+
+    /**
+     * Find the critical path through the constructor dependencies, weighting each bean by its construction time.
+     *
+     * @param beanNameToTime The time to construct each bean, keyed by bean name. Beans which are missing are assumed
+     *                       to take no time.
+     */
+    public CriticalPath criticalPath(Map<String, Double> beanNameToTime) {
+        Map<Bean, Double> finishTimes = new IdentityHashMap<>();
+        Map<Bean, Bean> slowestDependency = new IdentityHashMap<>();
+        double sequentialTime = 0;
+        Bean last = null;
+        for (Bean bean : sortedBeans) {
+            double time = beanNameToTime.getOrDefault(identifiers.get(bean), 0.0);
+            sequentialTime += time;
+            double startTime = 0;
+            Bean slowest = null;
+            for (Bean dependency : constructorDependencies(bean)) {
+                double finishTime = finishTimes.get(dependency);
+                if (slowest == null || finishTime > startTime) {
+                    startTime = finishTime;
+                    slowest = dependency;
+                }
+            }
+            if (slowest != null) {
+                slowestDependency.put(bean, slowest);
+            }
+            finishTimes.put(bean, startTime + time);
+            if (last == null || finishTimes.get(bean) > finishTimes.get(last)) {
+                last = bean;
+            }
+        }
+        List<Bean> path = new ArrayList<>();
+        for (Bean bean = last; bean != null; bean = slowestDependency.get(bean)) {
+            path.add(bean);
+        }
+        Collections.reverse(path);
+        double length = last == null ? 0 : finishTimes.get(last);
+        return new CriticalPath(path, length, sequentialTime);
+    }
+
+    public String toJson(Map<String, Double> beanNameToTime) {
+        StringBuilder json = new StringBuilder("{\n  \"beans\": [");
+        for (int i = 0; i < sortedBeans.size(); ++i) {
+            Bean bean = sortedBeans.get(i);
+            json.append(i == 0 ? "\n" : ",\n")
+                .append("    {\"name\": ").append(quote(identifiers.get(bean)))
+                .append(", \"qualifier\": ").append(quote(bean.name()))
+                .append(", \"type\": ").append(quote(bean.getFqn()))
+                .append(", \"depth\": ").append(beanToDepth.get(bean));
+            Double time = beanNameToTime.get(identifiers.get(bean));
+            if (time != null) {
+                json.append(", \"constructionTime\": ").append(time);
+            }
+            json.append('}');
+        }
+        json.append("\n  ],\n  \"edges\": [");
+        List<Edge> edges = edges();
+        for (int i = 0; i < edges.size(); ++i) {
+            Edge edge = edges.get(i);
+            json.append(i == 0 ? "\n" : ",\n")
+                .append("    {\"from\": ").append(quote(identifiers.get(edge.from())))
+                .append(", \"to\": ").append(quote(identifiers.get(edge.to())))
+                .append(", \"kind\": ").append(quote(edge.kind().label))
+                .append('}');
+        }
+        json.append("\n  ],\n  \"levels\": [");
+        List<List<Bean>> levels = levels();
+        for (int i = 0; i < levels.size(); ++i) {
+            json.append(i == 0 ? "\n" : ",\n").append("    ").append(quoteAll(levels.get(i)));
+        }
+        json.append("\n  ]");
+        if (!beanNameToTime.isEmpty()) {
+            CriticalPath criticalPath = criticalPath(beanNameToTime);
+            json.append(",\n  \"criticalPath\": {")
+                .append("\n    \"beans\": ").append(quoteAll(criticalPath.beans()))
+                .append(",\n    \"length\": ").append(criticalPath.length())
+                .append(",\n    \"sequentialTime\": ").append(criticalPath.sequentialTime())
+                .append("\n  }");
+        }
+        return json.append("\n}\n").toString();
+    }
+
+    public String toDot(Map<String, Double> beanNameToTime) {
+        List<Bean> criticalPath = beanNameToTime.isEmpty() ? List.of() : criticalPath(beanNameToTime).beans();
+        StringBuilder dot = new StringBuilder("digraph beans {\n  rankdir=BT;\n  node [shape=box];\n");
+        for (Bean bean : sortedBeans) {
+            dot.append("  ").append(quote(identifiers.get(bean)))
+                .append(" [label=").append(quote(identifiers.get(bean) + "\n" + bean.getFqn()));
+            if (criticalPath.contains(bean)) {
+                dot.append(", color=red");
+            }
+            dot.append("];\n");
+        }
+        for (List<Bean> level : levels()) {
+            dot.append("  { rank=same; ")
+                .append(level.stream().map(bean -> quote(identifiers.get(bean))).collect(Collectors.joining("; ")))
+                .append("; }\n");
+        }
+        for (Edge edge : edges()) {
+            dot.append("  ").append(quote(identifiers.get(edge.from())))
+                .append(" -> ").append(quote(identifiers.get(edge.to())))
+                .append(" [label=").append(quote(edge.kind().label))
+                .append(", style=").append(switch (edge.kind()) {
+                    case BASIC -> "solid";
+                    case COLLECTION -> "bold";
+                    case PROVIDER -> "dashed";
+                    case INJECT_METHOD, CONFIG -> "dotted";
+                })
+                .append("];\n");
+        }
+        return dot.append("}\n").toString();
+    }
+
+    private static List<Bean> constructorDependencies(Bean bean) {
+        return bean.dependencies().stream()
+            .flatMap(dependency -> dependency.directBeans().stream())
+            .toList();
+    }
+
+    private String quoteAll(List<Bean> beans) {
+        return beans.stream()
+            .map(bean -> quote(identifiers.get(bean)))
+            .collect(Collectors.joining(", ", "[", "]"));
+    }
+
+    // Escaping which is valid for both JSON and DOT
+    private static String quote(String str) {
+        return '"' + str.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n") + '"';
+    }
+
+    record Edge(Bean from, Bean to, EdgeKind kind) {
+    }
+
+    /**
+     * @param beans The beans on the critical path, with each bean depending on the one before it.
+     * @param length The time to construct the beans on the critical path. This is the best possible startup time if
+     *               beans could be constructed in parallel.
+     * @param sequentialTime The time to construct every bean one after another.
+     */
+    record CriticalPath(List<Bean> beans, double length, double sequentialTime) {
+    }
+}
@@ -1,12 +1,12 @@
 package com.github.michaelboyles.simpledi;
 
-import java.util.ArrayList;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Types;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import static java.util.Collections.emptyList;
 import static java.util.Collections.unmodifiableList;
 
 /**
@@ -14,25 +14,27 @@ import static java.util.Collections.unmodifiableList;
  */
 class DiscoveredBeans {
     private final List<Bean> beans;
-    private final Map<String, List<Bean>> fqnToBeans;
+    private final TypeIndex typeIndex;
 
-    DiscoveredBeans(List<Bean> beans) {
+    DiscoveredBeans(List<Bean> beans, Types types) {
         this.beans = List.copyOf(beans);
-        this.fqnToBeans = fqnToBeans(this.beans);
+        this.typeIndex = new TypeIndex(this.beans, types);
     }
 
     public List<Bean> all() {
         return beans;
     }
 
-    public List<Bean> beansExtending(String fqn) {
-        return unmodifiableList(fqnToBeans.getOrDefault(fqn, emptyList()));
+    public TypeIndex typeIndex() {
+        return typeIndex;
     }
 
-    public List<Bean> beansWithExactFqn(String fqn) {
-        return beansExtending(fqn).stream()
-            .filter(bean -> bean.getFqn().equals(fqn))
-            .toList();
+    public List<Bean> beansExtending(TypeMirror type) {
+        return unmodifiableList(typeIndex.beansAssignableTo(type));
+    }
+
+    public List<Bean> beansWithExactType(TypeMirror type) {
+        return typeIndex.beansWithExactType(type);
     }
 
     public List<Bean> byNumDependencies() {
@@ -62,14 +64,4 @@ class DiscoveredBeans {
         fqnToNumDependents.put(bean.getFqn(), numDependencies);
         return numDependencies;
     }
-
-    private static Map<String, List<Bean>> fqnToBeans(List<Bean> beans) {
-        Map<String, List<Bean>> fqnToBeans = new HashMap<>();
-        for (Bean bean : beans) {
-            for (String fqn : bean.getAllFqns()) {
-                fqnToBeans.computeIfAbsent(fqn, k -> new ArrayList<>()).add(bean);
-            }
-        }
-        return fqnToBeans;
-    }
 }
@@ -0,0 +1,23 @@
+package com.github.michaelboyles.simpledi;
+
+import lombok.AllArgsConstructor;
+
+/**
+ * The kind of an edge in the dependency graph, i.e. how one bean is wired into another.
+ */
+@AllArgsConstructor
+enum EdgeKind {
+    BASIC("basic"),
+    COLLECTION("collection"),
+    PROVIDER("provider"),
+    /**
+     * A dependency which is passed to a method annotated with {@link javax.inject.Inject}, rather than the constructor.
+     */
+    INJECT_METHOD("inject-method"),
+    /**
+     * A configuration value. This doesn't form an edge to another bean, so doesn't appear in the graph.
+     */
+    CONFIG("config");
+
+    final String label;
+}
@@ -0,0 +1,174 @@
+package com.github.michaelboyles.simpledi;
+
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+
+import javax.lang.model.element.Modifier;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Types;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+
+import static com.github.michaelboyles.simpledi.InjectorClassGenerator.BASE_IDENTIFIER;
+import static com.github.michaelboyles.simpledi.InjectorClassGenerator.DIRTY_IDENTIFIER;
+
+/**
+ * Generates the parts of the DI context which deliver events to methods annotated with {@link EventListener}. The set
+ * of listeners for each event type is resolved at compile-time, so each generated {@code publish} method is a
+ * sequence of direct calls with no lookup or iteration.
+ */
+class EventDispatchGenerator {
+    static final String EXECUTOR_PARAM_NAME = "eventExecutor";
+    private static final String PUBLISH_METHOD_NAME = "publish";
+    static final String EVENT_PARAM_NAME = "event";
+
+    private final List<Bean> listeningBeans;
+    private final Map<String, TypeMirror> eventTypes;
+    private final Map<EventListenerMethod, String> dispatcherIdentifiers;
+    private final Types types;
+    private final BeanIdentifiers identifiers;
+
+    EventDispatchGenerator(List<Bean> sortedBeans, Types types, BeanIdentifiers identifiers) {
+        this.listeningBeans = sortedBeans.stream().filter(bean -> !bean.eventListeners().isEmpty()).toList();
+        this.eventTypes = getEventTypes(listeningBeans, types);
+        this.dispatcherIdentifiers = getDispatcherIdentifiers(listeningBeans, types, identifiers);
+        this.types = types;
+        this.identifiers = identifiers;
+    }
+
+    public boolean hasAsyncListeners() {
+        return listeningBeans.stream()
+            .flatMap(bean -> bean.eventListeners().stream())
+            .anyMatch(EventListenerMethod::async);
+    }
+
+    public List<FieldSpec> getFields() {
+        List<FieldSpec> fields = new ArrayList<>();
+        for (Bean bean : listeningBeans) {
+            for (EventListenerMethod listener : bean.eventListeners()) {
+                if (!listener.async()) continue;
+                TypeName dispatcherType = ParameterizedTypeName.get(
+                    ClassName.get(BatchingEventDispatcher.class), TypeName.get(listener.eventType())
+                );
+                fields.add(
+                    FieldSpec.builder(dispatcherType, dispatcherIdentifiers.get(listener))
+                        .addModifiers(Modifier.PRIVATE, Modifier.FINAL)
+                        .build()
+                );
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * Add the statements to a constructor which initialize the fields from {@link #getFields()}. Every bean must
+     * already have been instantiated and assigned to its field.
+     */
+    public void addFieldInitialization(MethodSpec.Builder constructor) {
+        for (Bean bean : listeningBeans) {
+            String id = identifiers.get(bean);
+            for (EventListenerMethod listener : bean.eventListeners()) {
+                if (!listener.async()) continue;
+                constructor.addStatement(
+                    "this.$L = new $T<>($L, $L::$L)",
+                    dispatcherIdentifiers.get(listener), BatchingEventDispatcher.class,
+                    EXECUTOR_PARAM_NAME, id, listener.element().getSimpleName()
+                );
+            }
+        }
+    }
+
+    /**
+     * Add the statements to a derived context's constructor which initialize the fields from {@link #getFields()}. A
+     * listener which is reused from the base context keeps its dispatcher, so that each listener has one drain task.
+     *
+     * @param indexOf A function to get the index of a bean, which is set in the dirty bit set if it was rebuilt
+     */
+    public void addDerivedFieldInitialization(MethodSpec.Builder constructor, ToIntFunction<Bean> indexOf) {
+        for (Bean bean : listeningBeans) {
+            String id = identifiers.get(bean);
+            for (EventListenerMethod listener : bean.eventListeners()) {
+                if (!listener.async()) continue;
+                String dispatcher = dispatcherIdentifiers.get(listener);
+                constructor.addStatement(
+                    "this.$L = $L.get($L) ? new $T<>($L, $L::$L) : $L.$L",
+                    dispatcher, DIRTY_IDENTIFIER, indexOf.applyAsInt(bean), BatchingEventDispatcher.class,
+                    EXECUTOR_PARAM_NAME, id, listener.element().getSimpleName(), BASE_IDENTIFIER, dispatcher
+                );
+            }
+        }
+    }
+
+    public List<MethodSpec> getPublishMethods() {
+        List<MethodSpec> methods = new ArrayList<>();
+        for (TypeMirror eventType : eventTypes.values()) {
+            MethodSpec.Builder builder = MethodSpec.methodBuilder(PUBLISH_METHOD_NAME)
+                .addModifiers(Modifier.PUBLIC)
+                .addParameter(TypeName.get(eventType), EVENT_PARAM_NAME);
+            // Synchronous listeners go first, so that an executor which rejects an asynchronous event can't stop them
+            // receiving it
+            for (Bean bean : listeningBeans) {
+                for (EventListenerMethod listener : bean.eventListeners()) {
+                    if (listener.async() || !types.isAssignable(eventType, listener.eventType())) continue;
+                    builder.addStatement(
+                        "$L.$L($L)", identifiers.get(bean), listener.element().getSimpleName(), EVENT_PARAM_NAME
+                    );
+                }
+            }
+            for (Bean bean : listeningBeans) {
+                for (EventListenerMethod listener : bean.eventListeners()) {
+                    if (!listener.async() || !types.isAssignable(eventType, listener.eventType())) continue;
+                    builder.addStatement("$L.submit($L)", dispatcherIdentifiers.get(listener), EVENT_PARAM_NAME);
+                }
+            }
+            methods.add(builder.build());
+        }
+        return methods;
+    }
+
+    // A listener's method may be overloaded for different event types, so the type is part of the dispatcher's name
+    private static Map<EventListenerMethod, String> getDispatcherIdentifiers(List<Bean> listeningBeans, Types types,
+                                                                             BeanIdentifiers identifiers) {
+        Map<EventListenerMethod, String> dispatcherIdentifiers = new HashMap<>();
+        for (Bean bean : listeningBeans) {
+            for (EventListenerMethod listener : bean.eventListeners()) {
+                if (!listener.async()) continue;
+                String methodName = listener.element().getSimpleName().toString();
+                String eventName = types.asElement(listener.eventType()).getSimpleName().toString();
+                dispatcherIdentifiers.put(listener, identifiers.reserve(
+                    identifiers.get(bean) + methodName.substring(0, 1).toUpperCase() + methodName.substring(1)
+                        + eventName + "Dispatcher"
+                ));
+            }
+        }
+        return dispatcherIdentifiers;
+    }
+
+    // A publish method is generated per distinct event type. Those methods are overloads, so types with the same
+    // erasure, e.g. List<String> and List<Integer>, cannot both be used
+    private static Map<String, TypeMirror> getEventTypes(List<Bean> listeningBeans, Types types) {
+        Map<String, TypeMirror> eventTypes = new LinkedHashMap<>();
+        Map<String, String> erasureToType = new HashMap<>();
+        for (Bean bean : listeningBeans) {
+            for (EventListenerMethod listener : bean.eventListeners()) {
+                String type = listener.eventType().toString();
+                String erasure = types.erasure(listener.eventType()).toString();
+                String existing = erasureToType.putIfAbsent(erasure, type);
+                if (existing != null && !existing.equals(type)) {
+                    throw new RuntimeException(
+                        "Event types %s and %s have the same erasure".formatted(existing, type)
+                    );
+                }
+                eventTypes.putIfAbsent(type, listener.eventType());
+            }
+        }
+        return eventTypes;
+    }
+}
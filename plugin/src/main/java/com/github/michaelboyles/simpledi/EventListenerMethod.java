@@ -0,0 +1,10 @@
+package com.github.michaelboyles.simpledi;
+
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.type.TypeMirror;
+
+/**
+ * A method found via annotation processing which was annotated with {@link EventListener}.
+ */
+record EventListenerMethod(ExecutableElement element, TypeMirror eventType, boolean async) {
+}
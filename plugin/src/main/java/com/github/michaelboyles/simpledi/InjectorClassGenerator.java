@@ -1,118 +1,831 @@
 package com.github.michaelboyles.simpledi;
 
+import com.squareup.javapoet.ClassName;
 import com.squareup.javapoet.CodeBlock;
 import com.squareup.javapoet.FieldSpec;
 import com.squareup.javapoet.JavaFile;
 import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterSpec;
 import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
 import com.squareup.javapoet.TypeSpec;
 import lombok.RequiredArgsConstructor;
 
+import javax.inject.Provider;
 import javax.lang.model.element.Modifier;
-import java.util.HashMap;
+import javax.lang.model.util.Types;
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
-import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import static com.github.michaelboyles.simpledi.BeanMetadataGenerator.METADATA_FIELD_NAME;
+import static com.github.michaelboyles.simpledi.ConfigBinder.CONFIG_IDENTIFIER;
 import static com.github.michaelboyles.simpledi.Const.INJECTOR_PACKAGE_NAME;
+import static com.github.michaelboyles.simpledi.EventDispatchGenerator.EXECUTOR_PARAM_NAME;
 import static com.github.michaelboyles.simpledi.ProviderDependency.PROVIDER_IDENTIFIER_SUFFIX;
+import static java.util.stream.Collectors.joining;
 
 /**
  * Generates a class which performs dependency injection.
  */
 @RequiredArgsConstructor
 class InjectorClassGenerator {
-    private static final String MAP_FIELD_NAME = "nameToBean";
+    static final String BEANS_FIELD_NAME = "beans";
+    private static final String WIRE_METHOD_PREFIX = "wire";
+    private static final String TEMPLATE_CLASS_NAME = "Template";
+    static final String TEMPLATE_FIELD_NAME = "template";
+    static final String STRIPE_PARAM_NAME = "stripe";
+    private static final String NEW_CONTEXT_METHOD_NAME = "newContext";
+    private static final String REFRESH_METHOD_NAME = "refresh";
+    private static final String REFRESH_VISIBILITY_JAVADOC = "<p>\nOnly {@link $T#get()} reads the new instance "
+        + "with acquire semantics. {@link #getBean} reads it\nwith a plain load, so another thread may still get the "
+        + "old instance from it.\n";
+    private static final String BUILDER_CLASS_NAME = "Builder";
+    private static final String REWIRE_METHOD_PREFIX = "rewire";
+    static final String BASE_IDENTIFIER = "base";
+    static final String OVERRIDES_IDENTIFIER = "overrides";
+    static final String CHANGED_IDENTIFIER = "changed";
+    static final String DIRTY_IDENTIFIER = "dirty";
+    /**
+     * The extra weight of a statement in a derived context, which chooses between a replacement, a new instance and the
+     * base context's instance, so is several times the bytecode of the equivalent statement in the main constructor.
+     */
+    private static final int CONDITIONAL_WEIGHT = 4;
+    private static final String STRIPED_BEAN_JAVADOC =
+        "<p>\nFor a striped bean, this is the {@link $T} which holds its instances, rather than one of them.\n";
 
-    private final Map<Bean, String> beanToIdentifier = new HashMap<>();
     private final String className;
     private final List<Bean> sortedBeans;
+    private final BeanIdentifiers identifiers;
+    private final TypeIndex typeIndex;
+    private final Types types;
+    private Set<Bean> beansUsedAfterWiring;
 
     public JavaFile generateClass() {
-        TypeSpec helloWorld = TypeSpec.classBuilder(className)
+        EventDispatchGenerator eventDispatch = new EventDispatchGenerator(sortedBeans, types, identifiers);
+        BeanMetadataGenerator metadata = new BeanMetadataGenerator(sortedBeans, identifiers, typeIndex);
+        List<Bean> sharedBeans = sortedBeans.stream().filter(Bean::isShared).toList();
+        List<Bean> providedBeans = getProvidedBeans(sortedBeans);
+        List<ConfigDependency> configDependencies = getConfigDependencies(sortedBeans);
+        List<ContextParameter> contextParameters = getContextParameters(eventDispatch, configDependencies);
+        TypeSpec.Builder builder = TypeSpec.classBuilder(className)
             .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
-            .addField(getNameToBeanMapField())
-            .addMethod(getConstructor())
+            .addField(metadata.getField())
+            .addField(getBeansField());
+        SplitStatements wiring = sharedBeans.isEmpty()
+            ? getWiring(metadata, providedBeans)
+            : getTenantWiring(metadata, providedBeans);
+        SplitStatements rewiring = getRewiring(metadata, providedBeans);
+        // Beans are local variables of the constructor, unless the wiring is split into methods which must share them
+        boolean wiringFields = wiring.isSplit() || rewiring.isSplit();
+        boolean hasConfigField;
+        if (sharedBeans.isEmpty()) {
+            hasConfigField = !configDependencies.isEmpty();
+            if (hasConfigField) {
+                builder.addField(ConfigSource.class, CONFIG_IDENTIFIER, Modifier.PRIVATE, Modifier.FINAL);
+            }
+            builder.addFields(getProviderFields(providedBeans, wiringFields))
+                .addFields(getBeanFields(sortedBeans, wiringFields))
+                .addFields(getExecutorFields(eventDispatch))
+                .addFields(eventDispatch.getFields());
+            if (!contextParameters.isEmpty()) {
+                builder.addMethod(getDefaultConstructor(contextParameters));
+            }
+            builder.addMethod(
+                getConstructor(builder, contextParameters, configDependencies, eventDispatch, wiring, wiringFields)
+            );
+        }
+        else {
+            hasConfigField = addTemplate(
+                builder, sharedBeans, eventDispatch, providedBeans, contextParameters, wiring, wiringFields
+            );
+        }
+        builder.addMethod(getDerivedConstructor(
+                builder, !sharedBeans.isEmpty(), hasConfigField, eventDispatch, metadata, rewiring, wiringFields
+            ))
+            .addMethods(getRefreshMethods(metadata))
+            .addMethod(getMetadataMethod())
+            .addMethod(getBeanMethod())
             .addMethod(getBeanByNameMethod())
-            .build();
-        return JavaFile.builder(INJECTOR_PACKAGE_NAME, helloWorld).build();
+            .addMethods(eventDispatch.getPublishMethods())
+            .addMethod(getToBuilderMethod())
+            .addType(getBuilderClass());
+        return JavaFile.builder(INJECTOR_PACKAGE_NAME, builder.build()).build();
+    }
+
+    // Shared beans are built once by a nested template, and each context created from it only builds the rest. Returns
+    // whether the context has a config field.
+    private boolean addTemplate(TypeSpec.Builder clazz, List<Bean> sharedBeans, EventDispatchGenerator eventDispatch,
+                                List<Bean> providedBeans, List<ContextParameter> contextParameters,
+                                SplitStatements wiring, boolean wiringFields) {
+        ClassName contextName = ClassName.get(INJECTOR_PACKAGE_NAME, className);
+        ClassName templateName = contextName.nestedClass(TEMPLATE_CLASS_NAME);
+        List<Bean> tenantBeans = sortedBeans.stream().filter(bean -> !bean.isShared()).toList();
+        List<ConfigDependency> sharedConfig = getConfigDependencies(sharedBeans);
+        List<ConfigDependency> tenantConfig = getConfigDependencies(tenantBeans);
+        List<ContextParameter> tenantParameters = contextParameters.stream()
+            .filter(parameter -> !isConfig(parameter) || !tenantConfig.isEmpty())
+            .toList();
+
+        // A derived context may rebuild shared beans, so needs the config whenever any bean reads it
+        boolean hasConfigField = !tenantConfig.isEmpty() || !sharedConfig.isEmpty();
+        clazz.addField(templateName, TEMPLATE_FIELD_NAME, Modifier.PRIVATE, Modifier.FINAL);
+        if (hasConfigField) {
+            clazz.addField(ConfigSource.class, CONFIG_IDENTIFIER, Modifier.PRIVATE, Modifier.FINAL);
+        }
+        clazz.addFields(getProviderFields(providedBeans, wiringFields))
+            .addFields(getBeanFields(sortedBeans, wiringFields))
+            .addFields(getExecutorFields(eventDispatch))
+            .addFields(eventDispatch.getFields());
+        if (!contextParameters.isEmpty()) {
+            clazz.addMethod(getDefaultConstructor(contextParameters));
+        }
+
+        MethodSpec.Builder publicConstructor = MethodSpec.constructorBuilder()
+            .addModifiers(Modifier.PUBLIC)
+            .addJavadoc("Create a context with its own {@link $T}. Use a template to share beans between contexts.\n",
+                templateName);
+        contextParameters.forEach(parameter -> publicConstructor.addParameter(parameter.parameter()));
+        publicConstructor.addStatement(
+            "this(new $T($L)$L)",
+            templateName,
+            sharedConfig.isEmpty() ? "" : CONFIG_IDENTIFIER,
+            tenantParameters.stream().map(parameter -> ", " + parameter.parameter().name).collect(joining())
+        );
+        clazz.addMethod(publicConstructor.build());
+
+        MethodSpec.Builder tenantConstructor = MethodSpec.constructorBuilder()
+            .addModifiers(Modifier.PRIVATE)
+            .addParameter(templateName, TEMPLATE_FIELD_NAME);
+        tenantParameters.forEach(parameter -> tenantConstructor.addParameter(parameter.parameter()));
+        tenantConstructor.addStatement("this.$L = $L", TEMPLATE_FIELD_NAME, TEMPLATE_FIELD_NAME);
+        if (!tenantConfig.isEmpty()) {
+            addConfigInitialization(tenantConstructor, tenantConfig);
+        }
+        else if (hasConfigField) {
+            tenantConstructor.addStatement(
+                "this.$L = $L.$L", CONFIG_IDENTIFIER, TEMPLATE_FIELD_NAME, CONFIG_IDENTIFIER
+            );
+        }
+        wiring.addTo(tenantConstructor, clazz, WIRE_METHOD_PREFIX, wiringFields);
+        addExecutorInitialization(tenantConstructor, eventDispatch);
+        eventDispatch.addFieldInitialization(tenantConstructor);
+        clazz.addMethod(tenantConstructor.build());
+
+        clazz.addType(getTemplateClass(contextName, sharedBeans, sharedConfig, providedBeans, tenantParameters));
+        return hasConfigField;
+    }
+
+    // The wiring of a context created from a template, which copies the shared beans from it
+    private SplitStatements getTenantWiring(BeanMetadataGenerator metadata, List<Bean> providedBeans) {
+        SplitStatements statements = new SplitStatements();
+        for (Bean bean : providedBeans) {
+            if (bean.isShared()) {
+                String provider = getIdentifier(bean) + PROVIDER_IDENTIFIER_SUFFIX;
+                statements.add(1, "$L = $L.$L", provider, TEMPLATE_FIELD_NAME, provider);
+            }
+            else {
+                addProviderInstantiation(statements, bean);
+            }
+        }
+        for (Bean bean : sortedBeans) {
+            if (bean.isShared()) {
+                addBeanAssignment(
+                    statements, bean, 1, CodeBlock.of("$L.$L", TEMPLATE_FIELD_NAME, getIdentifier(bean))
+                );
+            }
+            else {
+                addBeanInstantiation(statements, bean, providedBeans.contains(bean));
+            }
+        }
+        for (Bean bean : sortedBeans) {
+            if (!bean.isShared()) {
+                addInjectMethodInvocations(statements, bean);
+            }
+        }
+        for (Bean bean : sortedBeans) {
+            addBeanRegistration(statements, bean, metadata.indexOf(bean));
+        }
+        return statements;
+    }
+
+    private TypeSpec getTemplateClass(ClassName contextName, List<Bean> sharedBeans,
+                                      List<ConfigDependency> sharedConfig, List<Bean> providedBeans,
+                                      List<ContextParameter> tenantParameters) {
+        List<Bean> sharedProvidedBeans = providedBeans.stream().filter(Bean::isShared).toList();
+        TypeSpec.Builder template = TypeSpec.classBuilder(TEMPLATE_CLASS_NAME)
+            .addJavadoc("Holds the {@code @Shared} beans, which are created once and then reused by every context\n"
+                + "created by {@link #newContext}.\n")
+            .addModifiers(Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL);
+        List<ContextParameter> templateParameters = new ArrayList<>();
+        if (!sharedConfig.isEmpty()) {
+            template.addField(ConfigSource.class, CONFIG_IDENTIFIER, Modifier.PRIVATE, Modifier.FINAL);
+            templateParameters.add(getConfigParameter());
+        }
+        SplitStatements statements = new SplitStatements();
+        for (Bean bean : sharedProvidedBeans) {
+            addProviderInstantiation(statements, bean);
+        }
+        for (Bean bean : sharedBeans) {
+            addBeanInstantiation(statements, bean, sharedProvidedBeans.contains(bean), true);
+        }
+        for (Bean bean : sharedBeans) {
+            addInjectMethodInvocations(statements, bean);
+        }
+        // Every context reads the shared beans from the template's fields, which are final unless wiring is split
+        template.addFields(getProviderFields(sharedProvidedBeans, statements.isSplit()))
+            .addFields(getFields(sharedBeans, statements.isSplit()));
+        if (!templateParameters.isEmpty()) {
+            template.addMethod(getDefaultConstructor(templateParameters));
+        }
+
+        MethodSpec.Builder constructor = MethodSpec.constructorBuilder()
+            .addModifiers(Modifier.PUBLIC);
+        templateParameters.forEach(parameter -> constructor.addParameter(parameter.parameter()));
+        if (!sharedConfig.isEmpty()) {
+            addConfigInitialization(constructor, sharedConfig);
+        }
+        statements.addTo(constructor, template, WIRE_METHOD_PREFIX, true);
+        template.addMethod(constructor.build());
+
+        if (!tenantParameters.isEmpty()) {
+            template.addMethod(MethodSpec.methodBuilder(NEW_CONTEXT_METHOD_NAME)
+                .addModifiers(Modifier.PUBLIC)
+                .returns(contextName)
+                .addStatement(
+                    "return $L($L)",
+                    NEW_CONTEXT_METHOD_NAME,
+                    tenantParameters.stream().map(ContextParameter::defaultValue).collect(CodeBlock.joining(", "))
+                )
+                .build()
+            );
+        }
+        MethodSpec.Builder newContext = MethodSpec.methodBuilder(NEW_CONTEXT_METHOD_NAME)
+            .addJavadoc("Create a context which reuses this template's shared beans.\n")
+            .addModifiers(Modifier.PUBLIC)
+            .returns(contextName);
+        tenantParameters.forEach(parameter -> newContext.addParameter(parameter.parameter()));
+        newContext.addStatement(
+            "return new $T(this$L)",
+            contextName,
+            tenantParameters.stream().map(parameter -> ", " + parameter.parameter().name).collect(joining())
+        );
+        template.addMethod(newContext.build());
+        return template.build();
     }
 
-    private FieldSpec getNameToBeanMapField() {
-        return FieldSpec.builder(ParameterizedTypeName.get(Map.class, String.class, Object.class), MAP_FIELD_NAME)
+    private FieldSpec getBeansField() {
+        return FieldSpec.builder(Object[].class, BEANS_FIELD_NAME)
             .addModifiers(Modifier.PRIVATE, Modifier.FINAL)
-            .initializer("new $T<>()", HashMap.class)
+            .initializer("new $T[$L.size()]", Object.class, METADATA_FIELD_NAME)
+            .build();
+    }
+
+    // Providers are always fields, since they're used to refresh beans and to create derived contexts. They can only be
+    // final if they're assigned directly by the constructor, rather than by the methods which wiring is split into.
+    private List<FieldSpec> getProviderFields(List<Bean> providedBeans, boolean wiringFields) {
+        return providedBeans.stream()
+            .map(bean -> {
+                TypeName providerType = ParameterizedTypeName.get(
+                    ClassName.get(getProviderClass(bean)), TypeName.get(bean.typeElement().asType())
+                );
+                return getWiredField(providerType, getIdentifier(bean) + PROVIDER_IDENTIFIER_SUFFIX, wiringFields);
+            })
+            .toList();
+    }
+
+    // A bean is a local variable of the constructor, unless it's used afterwards or wiring is split
+    private List<FieldSpec> getBeanFields(List<Bean> beans, boolean wiringFields) {
+        return getFields(
+            beans.stream().filter(bean -> wiringFields || getBeansUsedAfterWiring().contains(bean)).toList(),
+            wiringFields
+        );
+    }
+
+    // A striped bean has no single instance, so is only held by its provider
+    private List<FieldSpec> getFields(List<Bean> beans, boolean wiringFields) {
+        return beans.stream()
+            .filter(bean -> !bean.isStriped())
+            .map(bean -> getWiredField(TypeName.get(bean.typeElement().asType()), getIdentifier(bean), wiringFields))
+            .toList();
+    }
+
+    private static FieldSpec getWiredField(TypeName type, String name, boolean wiringFields) {
+        FieldSpec.Builder field = FieldSpec.builder(type, name).addModifiers(Modifier.PRIVATE);
+        if (!wiringFields) {
+            field.addModifiers(Modifier.FINAL);
+        }
+        return field.build();
+    }
+
+    // The beans which the context uses after it's constructed, so must be fields: those with listeners which are called
+    // by a publish method, and those which are passed again to a refreshed bean
+    private Set<Bean> getBeansUsedAfterWiring() {
+        if (beansUsedAfterWiring == null) {
+            beansUsedAfterWiring = Stream.concat(
+                    sortedBeans.stream()
+                        .filter(bean -> bean.eventListeners().stream().anyMatch(listener -> !listener.async())),
+                    sortedBeans.stream()
+                        .filter(Bean::isRefreshable)
+                        .flatMap(bean -> Stream.concat(
+                            bean.dependencies().stream(),
+                            bean.injectMethods().stream().flatMap(method -> method.dependencies().stream())
+                        ))
+                        .flatMap(dependency -> dependency.directBeans().stream())
+                )
+                .collect(Collectors.toSet());
+        }
+        return beansUsedAfterWiring;
+    }
+
+    private List<ConfigDependency> getConfigDependencies(List<Bean> beans) {
+        return beans.stream()
+            .flatMap(bean -> Stream.concat(
+                bean.dependencies().stream(),
+                bean.injectMethods().stream().flatMap(method -> method.dependencies().stream())
+            ))
+            .filter(ConfigDependency.class::isInstance)
+            .map(ConfigDependency.class::cast)
+            .toList();
+    }
+
+    // Things the context needs from outside, which can be passed to the constructor or left as a default
+    private List<ContextParameter> getContextParameters(EventDispatchGenerator eventDispatch,
+                                                        List<ConfigDependency> configDependencies) {
+        List<ContextParameter> parameters = new ArrayList<>();
+        if (!configDependencies.isEmpty()) {
+            parameters.add(getConfigParameter());
+        }
+        if (eventDispatch.hasAsyncListeners()) {
+            parameters.add(new ContextParameter(
+                ParameterSpec.builder(Executor.class, EXECUTOR_PARAM_NAME).build(),
+                CodeBlock.of("$T.commonPool()", ForkJoinPool.class)
+            ));
+        }
+        return parameters;
+    }
+
+    private static ContextParameter getConfigParameter() {
+        return new ContextParameter(
+            ParameterSpec.builder(ConfigSource.class, CONFIG_IDENTIFIER).build(),
+            CodeBlock.of("$T.load()", ConfigSource.class)
+        );
+    }
+
+    private static boolean isConfig(ContextParameter parameter) {
+        return parameter.parameter().type.equals(TypeName.get(ConfigSource.class));
+    }
+
+    private MethodSpec getDefaultConstructor(List<ContextParameter> contextParameters) {
+        return MethodSpec.constructorBuilder()
+            .addModifiers(Modifier.PUBLIC)
+            .addStatement(
+                "this($L)",
+                contextParameters.stream().map(ContextParameter::defaultValue).collect(CodeBlock.joining(", "))
+            )
             .build();
     }
 
-    private MethodSpec getConstructor() {
+    private MethodSpec getConstructor(TypeSpec.Builder clazz, List<ContextParameter> contextParameters,
+                                      List<ConfigDependency> configDependencies, EventDispatchGenerator eventDispatch,
+                                      SplitStatements wiring, boolean wiringFields) {
         MethodSpec.Builder builder = MethodSpec.constructorBuilder()
             .addModifiers(Modifier.PUBLIC);
-        List<Bean> providedBeans = getProvidedBeans(sortedBeans);
+        for (ContextParameter parameter : contextParameters) {
+            builder.addParameter(parameter.parameter());
+        }
+        if (!configDependencies.isEmpty()) {
+            addConfigInitialization(builder, configDependencies);
+        }
+        wiring.addTo(builder, clazz, WIRE_METHOD_PREFIX, wiringFields);
+        addExecutorInitialization(builder, eventDispatch);
+        eventDispatch.addFieldInitialization(builder);
+        return builder.build();
+    }
+
+    private SplitStatements getWiring(BeanMetadataGenerator metadata, List<Bean> providedBeans) {
+        SplitStatements statements = new SplitStatements();
         for (Bean bean : providedBeans) {
-            addProviderInstantiation(builder, bean);
+            addProviderInstantiation(statements, bean);
         }
         for (Bean bean : sortedBeans) {
-            addBeanInstantiation(builder, bean, providedBeans.contains(bean));
+            addBeanInstantiation(statements, bean, providedBeans.contains(bean));
         }
         for (Bean bean : sortedBeans) {
-            addInjectMethodInvocations(builder, bean);
+            addInjectMethodInvocations(statements, bean);
         }
         for (Bean bean : sortedBeans) {
-            addBeanRegistration(builder, bean);
+            addBeanRegistration(statements, bean, metadata.indexOf(bean));
         }
-        return builder.build();
+        return statements;
+    }
+
+    private void addConfigInitialization(MethodSpec.Builder constructor, List<ConfigDependency> configDependencies) {
+        constructor.addStatement("this.$L = $L", CONFIG_IDENTIFIER, CONFIG_IDENTIFIER);
+        List<CodeBlock> requiredKeys = getRequiredKeys(configDependencies);
+        if (!requiredKeys.isEmpty()) {
+            constructor.addStatement("$L.requireKeys($L)", CONFIG_IDENTIFIER, CodeBlock.join(requiredKeys, ", "));
+        }
+    }
+
+    private static List<CodeBlock> getRequiredKeys(List<ConfigDependency> configDependencies) {
+        return configDependencies.stream()
+            .flatMap(dependency -> dependency.requiredKeys().stream())
+            .distinct()
+            .map(key -> CodeBlock.of("$S", key))
+            .toList();
     }
 
     private List<Bean> getProvidedBeans(List<Bean> beans) {
-        return beans.stream()
-            .map(Bean::getProvidedBeans)
-            .flatMap(List::stream)
+        return Stream.concat(
+                beans.stream().map(Bean::getProvidedBeans).flatMap(List::stream),
+                // A refreshable bean always has a provider, since that's where a refreshed instance is published, and
+                // a striped bean always has one to hold its instances
+                beans.stream().filter(bean -> bean.isRefreshable() || bean.isStriped())
+            )
             .distinct()
             .toList();
     }
 
-    private void addProviderInstantiation(MethodSpec.Builder methodBuilder, Bean bean) {
-        methodBuilder.addStatement(
-            "$T<$T> $L$L = new $T<>()", MutableProvider.class, bean.typeElement(), getIdentifier(bean),
-            PROVIDER_IDENTIFIER_SUFFIX, MutableProvider.class
+    private static Class<?> getProviderClass(Bean bean) {
+        if (bean.isRefreshable()) return RefreshableProvider.class;
+        if (bean.isStriped()) return StripedProvider.class;
+        return MutableProvider.class;
+    }
+
+    private void addProviderInstantiation(SplitStatements statements, Bean bean) {
+        statements.add(1, "$L$L = $L", getIdentifier(bean), PROVIDER_IDENTIFIER_SUFFIX, getNewProvider(bean));
+    }
+
+    private static CodeBlock getNewProvider(Bean bean) {
+        if (bean.isStriped() && bean.getStripeCount() > 0) {
+            return CodeBlock.of("new $T<>($L)", StripedProvider.class, bean.getStripeCount());
+        }
+        return CodeBlock.of("new $T<>()", getProviderClass(bean));
+    }
+
+    private void addBeanInstantiation(SplitStatements statements, Bean bean, boolean isProvided) {
+        addBeanInstantiation(statements, bean, isProvided, false);
+    }
+
+    /**
+     * @param field Whether the bean is always a field, rather than only when it's used after wiring or wiring is split
+     */
+    private void addBeanInstantiation(SplitStatements statements, Bean bean, boolean isProvided, boolean field) {
+        if (bean.isStriped()) {
+            statements.add(
+                getWeight(bean.dependencies()),
+                "$L$L.fill($L -> new $T($L))",
+                getIdentifier(bean), PROVIDER_IDENTIFIER_SUFFIX, STRIPE_PARAM_NAME,
+                bean.typeElement(), getArgumentList(bean.dependencies())
+            );
+            return;
+        }
+        CodeBlock instantiation = CodeBlock.of(
+            "new $T($L)", bean.typeElement(), getArgumentList(bean.dependencies())
+        );
+        if (field) {
+            statements.add(getWeight(bean.dependencies()), "$L = $L", getIdentifier(bean), instantiation);
+        }
+        else {
+            addBeanAssignment(statements, bean, getWeight(bean.dependencies()), instantiation);
+        }
+        if (isProvided) {
+            statements.add(
+                1, "$L$L.set($L)", getIdentifier(bean), PROVIDER_IDENTIFIER_SUFFIX, getIdentifier(bean)
+            );
+        }
+    }
+
+    private void addBeanAssignment(SplitStatements statements, Bean bean, int weight, CodeBlock value) {
+        if (getBeansUsedAfterWiring().contains(bean)) {
+            statements.add(weight, "$L = $L", getIdentifier(bean), value);
+        }
+        else {
+            statements.declare(weight, TypeName.get(bean.typeElement().asType()), getIdentifier(bean), "$L", value);
+        }
+    }
+
+    private void addBeanRegistration(SplitStatements statements, Bean bean, int index) {
+        String instance = bean.isStriped() ? getIdentifier(bean) + PROVIDER_IDENTIFIER_SUFFIX : getIdentifier(bean);
+        statements.add(1, "$L[$L] = $L", BEANS_FIELD_NAME, index, instance);
+    }
+
+    private List<FieldSpec> getExecutorFields(EventDispatchGenerator eventDispatch) {
+        if (!eventDispatch.hasAsyncListeners()) return List.of();
+        return List.of(
+            FieldSpec.builder(Executor.class, EXECUTOR_PARAM_NAME, Modifier.PRIVATE, Modifier.FINAL).build()
+        );
+    }
+
+    private void addExecutorInitialization(MethodSpec.Builder constructor, EventDispatchGenerator eventDispatch) {
+        if (eventDispatch.hasAsyncListeners()) {
+            constructor.addStatement("this.$L = $L", EXECUTOR_PARAM_NAME, EXECUTOR_PARAM_NAME);
+        }
+    }
+
+    // Creates a context from a base context and some replacement beans. Only the replaced beans and their dependents
+    // are dirty and created again, and every other bean is the same instance as in the base context.
+    private MethodSpec getDerivedConstructor(TypeSpec.Builder clazz, boolean hasTemplate, boolean hasConfigField,
+                                             EventDispatchGenerator eventDispatch, BeanMetadataGenerator metadata,
+                                             SplitStatements rewiring, boolean wiringFields) {
+        ClassName contextName = ClassName.get(INJECTOR_PACKAGE_NAME, className);
+        List<ParameterSpec> parameters = List.of(
+            ParameterSpec.builder(contextName, BASE_IDENTIFIER).build(),
+            ParameterSpec.builder(Object[].class, OVERRIDES_IDENTIFIER).build(),
+            ParameterSpec.builder(BitSet.class, DIRTY_IDENTIFIER).build()
+        );
+        MethodSpec.Builder constructor = MethodSpec.constructorBuilder()
+            .addModifiers(Modifier.PRIVATE)
+            .addParameter(parameters.get(0))
+            .addParameter(parameters.get(1));
+        if (hasTemplate) {
+            constructor.addStatement("this.$L = $L.$L", TEMPLATE_FIELD_NAME, BASE_IDENTIFIER, TEMPLATE_FIELD_NAME);
+        }
+        if (hasConfigField) {
+            constructor.addStatement("this.$L = $L.$L", CONFIG_IDENTIFIER, BASE_IDENTIFIER, CONFIG_IDENTIFIER);
+        }
+        if (eventDispatch.hasAsyncListeners()) {
+            constructor.addStatement("this.$L = $L.$L", EXECUTOR_PARAM_NAME, BASE_IDENTIFIER, EXECUTOR_PARAM_NAME);
+        }
+        constructor.addStatement("$T $L = new $T()", BitSet.class, CHANGED_IDENTIFIER, BitSet.class)
+            .beginControlFlow("for (int i = 0; i < $L.length; ++i)", OVERRIDES_IDENTIFIER)
+            .addStatement("if ($L[i] != null) $L.set(i)", OVERRIDES_IDENTIFIER, CHANGED_IDENTIFIER)
+            .endControlFlow();
+        for (Bean bean : sortedBeans) {
+            if (bean.isRefreshable()) {
+                // Otherwise refreshing either context would publish to dependents in the other
+                constructor.addStatement("$L.set($L)", CHANGED_IDENTIFIER, metadata.indexOf(bean));
+            }
+        }
+        constructor.addStatement(
+            "$T $L = $L.withDependents($L)", BitSet.class, DIRTY_IDENTIFIER, METADATA_FIELD_NAME, CHANGED_IDENTIFIER
         );
+        rewiring.addTo(constructor, clazz, REWIRE_METHOD_PREFIX, parameters, wiringFields);
+        eventDispatch.addDerivedFieldInitialization(constructor, metadata::indexOf);
+        return constructor.build();
+    }
+
+    // Only the base context's providers are fields, so its other beans are read from its registry
+    private SplitStatements getRewiring(BeanMetadataGenerator metadata, List<Bean> providedBeans) {
+        SplitStatements statements = new SplitStatements();
+        for (Bean bean : providedBeans) {
+            String provider = getIdentifier(bean) + PROVIDER_IDENTIFIER_SUFFIX;
+            statements.add(
+                1 + CONDITIONAL_WEIGHT, "$L = $L.get($L) ? $L : $L.$L",
+                provider, DIRTY_IDENTIFIER, metadata.indexOf(bean), getNewProvider(bean), BASE_IDENTIFIER, provider
+            );
+        }
+        for (Bean bean : sortedBeans) {
+            int index = metadata.indexOf(bean);
+            CodeBlock override = CodeBlock.of("($T) $L[$L]", bean.typeElement(), OVERRIDES_IDENTIFIER, index);
+            CodeBlock instantiation = CodeBlock.of(
+                "new $T($L)", bean.typeElement(), getArgumentList(bean.dependencies())
+            );
+            if (bean.isStriped()) {
+                statements.add(
+                    getWeight(bean.dependencies()) + CONDITIONAL_WEIGHT,
+                    "if ($L.get($L)) $L$L.fill($L -> $L[$L] != null ? $L : $L)",
+                    DIRTY_IDENTIFIER, index, getIdentifier(bean), PROVIDER_IDENTIFIER_SUFFIX, STRIPE_PARAM_NAME,
+                    OVERRIDES_IDENTIFIER, index, override, instantiation
+                );
+                continue;
+            }
+            addBeanAssignment(
+                statements, bean, getWeight(bean.dependencies()) + CONDITIONAL_WEIGHT,
+                CodeBlock.of(
+                    "$L[$L] != null ? $L : $L.get($L) ? $L : ($T) $L.$L[$L]",
+                    OVERRIDES_IDENTIFIER, index, override, DIRTY_IDENTIFIER, index, instantiation,
+                    bean.typeElement(), BASE_IDENTIFIER, BEANS_FIELD_NAME, index
+                )
+            );
+            if (providedBeans.contains(bean)) {
+                statements.add(
+                    1 + CONDITIONAL_WEIGHT, "if ($L.get($L)) $L$L.set($L)",
+                    DIRTY_IDENTIFIER, index, getIdentifier(bean), PROVIDER_IDENTIFIER_SUFFIX, getIdentifier(bean)
+                );
+            }
+        }
+        for (Bean bean : sortedBeans) {
+            // A replacement is used as it was given
+            int index = metadata.indexOf(bean);
+            addInjectMethodInvocations(
+                statements, bean,
+                CodeBlock.of("$L.get($L) && $L[$L] == null", DIRTY_IDENTIFIER, index, OVERRIDES_IDENTIFIER, index)
+            );
+        }
+        for (Bean bean : sortedBeans) {
+            addBeanRegistration(statements, bean, metadata.indexOf(bean));
+        }
+        return statements;
+    }
+
+    private MethodSpec getToBuilderMethod() {
+        ClassName builderName = ClassName.get(INJECTOR_PACKAGE_NAME, className).nestedClass(BUILDER_CLASS_NAME);
+        return MethodSpec.methodBuilder("toBuilder")
+            .addJavadoc("Create a builder for a context which reuses this context's beans, except for any which are\n"
+                + "overridden or depend on one which is overridden.\n")
+            .addModifiers(Modifier.PUBLIC)
+            .returns(builderName)
+            .addStatement("return new $T(this)", builderName)
+            .build();
+    }
+
+    private TypeSpec getBuilderClass() {
+        ClassName contextName = ClassName.get(INJECTOR_PACKAGE_NAME, className);
+        ClassName builderName = contextName.nestedClass(BUILDER_CLASS_NAME);
+        return TypeSpec.classBuilder(BUILDER_CLASS_NAME)
+            .addJavadoc("Creates a context from an existing one with some beans replaced, e.g. by stubs in a test.\n")
+            .addModifiers(Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL)
+            .addField(contextName, BASE_IDENTIFIER, Modifier.PRIVATE, Modifier.FINAL)
+            .addField(
+                FieldSpec.builder(Object[].class, OVERRIDES_IDENTIFIER, Modifier.PRIVATE, Modifier.FINAL)
+                    .initializer("new $T[$L.size()]", Object.class, METADATA_FIELD_NAME)
+                    .build()
+            )
+            .addMethod(MethodSpec.constructorBuilder()
+                .addModifiers(Modifier.PRIVATE)
+                .addParameter(contextName, BASE_IDENTIFIER)
+                .addStatement("this.$L = $L", BASE_IDENTIFIER, BASE_IDENTIFIER)
+                .build()
+            )
+            .addMethod(MethodSpec.methodBuilder("override")
+                .addJavadoc("Replace the bean with the given name. The replacement must be an instance of the bean's "
+                    + "class.\n<p>\nA striped bean is replaced by a single instance, which is used for every stripe, "
+                    + "rather than by a\n{@link $T} like {@link $T#getBean} returns.\n",
+                    StripedProvider.class, contextName)
+                .addModifiers(Modifier.PUBLIC)
+                .returns(builderName)
+                .addParameter(String.class, "name")
+                .addParameter(Object.class, "bean")
+                .addStatement("int index = $L.indexOf(name)", METADATA_FIELD_NAME)
+                .addStatement(
+                    "if (index < 0) throw new $T($S + name)", IllegalArgumentException.class, "No bean named "
+                )
+                .addStatement("$T.requireNonNull(bean)", Objects.class)
+                .addStatement(
+                    "if (!$L.isInstance(index, bean)) throw new $T($S + name + $S + $L.typeName(index))",
+                    METADATA_FIELD_NAME, IllegalArgumentException.class, "Bean ", " must be an instance of ",
+                    METADATA_FIELD_NAME
+                )
+                .addStatement("$L[index] = bean", OVERRIDES_IDENTIFIER)
+                .addStatement("return this")
+                .build()
+            )
+            .addMethod(MethodSpec.methodBuilder("build")
+                .addModifiers(Modifier.PUBLIC)
+                .returns(contextName)
+                .addStatement("return new $T($L, $L.clone())", contextName, BASE_IDENTIFIER, OVERRIDES_IDENTIFIER)
+                .build()
+            )
+            .build();
+    }
+
+    private List<MethodSpec> getRefreshMethods(BeanMetadataGenerator metadata) {
+        List<Bean> refreshableBeans = sortedBeans.stream().filter(Bean::isRefreshable).toList();
+        if (refreshableBeans.isEmpty()) return List.of();
+
+        List<MethodSpec> methods = new ArrayList<>();
+        boolean anyConfig = false;
+        // In the overload with config, the same code refers to the parameter rather than the field
+        CodeBlock.Builder cases = CodeBlock.builder();
+        for (Bean bean : refreshableBeans) {
+            List<ConfigDependency> configDependencies = getConfigDependencies(List.of(bean));
+            boolean hasConfig = !configDependencies.isEmpty();
+            anyConfig |= hasConfig;
+            String methodName = REFRESH_METHOD_NAME + capitalize(getIdentifier(bean));
+            String arguments = hasConfig ? CONFIG_IDENTIFIER : "";
+            cases.addStatement("case $S -> $L($L)", getIdentifier(bean), methodName, arguments);
+            methods.add(getRefreshBeanMethod(bean, methodName, configDependencies, metadata.indexOf(bean)));
+        }
+
+        MethodSpec.Builder refresh = MethodSpec.methodBuilder(REFRESH_METHOD_NAME)
+            .addJavadoc("Rebuild the {@code @Refreshable} bean with the given name, and publish the new instance to\n"
+                + "every {@link $T} of it.\n", Provider.class)
+            .addJavadoc(REFRESH_VISIBILITY_JAVADOC, Provider.class)
+            .addModifiers(Modifier.PUBLIC, Modifier.SYNCHRONIZED)
+            .addParameter(String.class, "name");
+        addRefreshSwitch(refresh, cases.build());
+        methods.add(0, refresh.build());
+        if (anyConfig) {
+            MethodSpec.Builder refreshWithConfig = MethodSpec.methodBuilder(REFRESH_METHOD_NAME)
+                .addJavadoc("Rebuild the {@code @Refreshable} bean with the given name using new config, and publish\n"
+                    + "the new instance to every {@link $T} of it.\n", Provider.class)
+                .addJavadoc("<p>\nThe config is only used for this refresh. It isn't kept, so a later "
+                    + "{@link #$L(String)}, and\ncontexts from {@link #toBuilder()}, still use the config this "
+                    + "context was created with.\n", REFRESH_METHOD_NAME)
+                .addJavadoc(REFRESH_VISIBILITY_JAVADOC, Provider.class)
+                .addModifiers(Modifier.PUBLIC, Modifier.SYNCHRONIZED)
+                .addParameter(String.class, "name")
+                .addParameter(ConfigSource.class, CONFIG_IDENTIFIER);
+            addRefreshSwitch(refreshWithConfig, cases.build());
+            methods.add(1, refreshWithConfig.build());
+        }
+        return methods;
+    }
+
+    private static void addRefreshSwitch(MethodSpec.Builder method, CodeBlock cases) {
+        method.beginControlFlow("switch (name)")
+            .addCode(cases)
+            .addStatement("default -> throw new $T($S + name)", IllegalArgumentException.class, "No refreshable bean ")
+            .endControlFlow();
     }
 
-    private void addBeanInstantiation(MethodSpec.Builder methodBuilder, Bean bean, boolean isProvided) {
-        methodBuilder.addStatement(
+    // Builds a new instance into a local named after the bean, so the arguments are the same as in the constructor
+    private MethodSpec getRefreshBeanMethod(Bean bean, String methodName, List<ConfigDependency> configDependencies,
+                                            int index) {
+        MethodSpec.Builder method = MethodSpec.methodBuilder(methodName)
+            .addModifiers(Modifier.PRIVATE);
+        if (!configDependencies.isEmpty()) {
+            method.addParameter(ConfigSource.class, CONFIG_IDENTIFIER);
+            List<CodeBlock> requiredKeys = getRequiredKeys(configDependencies);
+            if (!requiredKeys.isEmpty()) {
+                method.addStatement("$L.requireKeys($L)", CONFIG_IDENTIFIER, CodeBlock.join(requiredKeys, ", "));
+            }
+        }
+        String identifier = getIdentifier(bean);
+        method.addStatement(
             "$T $L = new $T($L)",
-            bean.typeElement(), getIdentifier(bean), bean.typeElement(),
-            getArgumentList(bean.dependencies())
+            bean.typeElement(), identifier, bean.typeElement(), getArgumentList(bean.dependencies())
         );
-        if (isProvided) {
-            methodBuilder.addStatement(
-                "$L$L.set($L)", getIdentifier(bean), PROVIDER_IDENTIFIER_SUFFIX, getIdentifier(bean)
+        for (InjectMethod injectMethod : bean.injectMethods()) {
+            method.addStatement(
+                "$L.$L($L)",
+                identifier, injectMethod.element().getSimpleName().toString(),
+                getArgumentList(injectMethod.dependencies())
             );
         }
+        return method.addStatement("$L[$L] = $L", BEANS_FIELD_NAME, index, identifier)
+            .addStatement("$L$L.set($L)", identifier, PROVIDER_IDENTIFIER_SUFFIX, identifier)
+            .build();
     }
 
-    private void addBeanRegistration(MethodSpec.Builder methodBuilder, Bean bean) {
-        String id = getIdentifier(bean);
-        methodBuilder.addStatement("$L.put($S, $L)", MAP_FIELD_NAME, id, id);
+    private static String capitalize(String identifier) {
+        return Character.toUpperCase(identifier.charAt(0)) + identifier.substring(1);
+    }
+
+    private MethodSpec getMetadataMethod() {
+        return MethodSpec.methodBuilder("metadata")
+            .addJavadoc("Get the metadata of every bean. Indexes in the metadata can be passed to {@link #getBean}.\n")
+            .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+            .returns(BeanMetadata.class)
+            .addStatement("return $L", METADATA_FIELD_NAME)
+            .build();
+    }
+
+    private MethodSpec getBeanMethod() {
+        return MethodSpec.methodBuilder("getBean")
+            .addJavadoc("Get the bean with the given index in the {@link #metadata}.\n")
+            .addJavadoc(STRIPED_BEAN_JAVADOC, StripedProvider.class)
+            .addModifiers(Modifier.PUBLIC)
+            .returns(Object.class)
+            .addParameter(int.class, "index")
+            .addStatement("return $L[$L]", BEANS_FIELD_NAME, "index")
+            .build();
     }
 
     private MethodSpec getBeanByNameMethod() {
         return MethodSpec.methodBuilder("getBeanByName")
+            .addJavadoc("Get the bean with the given name, or null if there's no such bean.\n")
+            .addJavadoc(STRIPED_BEAN_JAVADOC, StripedProvider.class)
             .addModifiers(Modifier.PUBLIC)
             .returns(Object.class)
             .addParameter(String.class, "name")
-            .addStatement("return $L.get($L)", MAP_FIELD_NAME, "name")
+            .addStatement("int index = $L.indexOf($L)", METADATA_FIELD_NAME, "name")
+            .addStatement("return index < 0 ? null : $L[index]", BEANS_FIELD_NAME)
             .build();
     }
 
-    private void addInjectMethodInvocations(MethodSpec.Builder methodBuilder, Bean bean) {
+    private void addInjectMethodInvocations(SplitStatements statements, Bean bean) {
+        addInjectMethodInvocations(statements, bean, null);
+    }
+
+    private void addInjectMethodInvocations(SplitStatements statements, Bean bean, CodeBlock condition) {
         for (InjectMethod method : bean.injectMethods()) {
-            methodBuilder.addStatement(
+            CodeBlock invocation = CodeBlock.of(
                 "$L.$L($L)",
-                getIdentifier(bean),
-                method.element().getSimpleName().toString(),
-                getArgumentList(method.dependencies())
+                getIdentifier(bean), method.element().getSimpleName().toString(), getArgumentList(method.dependencies())
             );
+            if (bean.isStriped()) {
+                invocation = CodeBlock.of(
+                    "$L$L.forEachStripe($L -> $L)",
+                    getIdentifier(bean), PROVIDER_IDENTIFIER_SUFFIX, getIdentifier(bean), invocation
+                );
+            }
+            if (condition == null) {
+                statements.add(getWeight(method.dependencies()), "$L", invocation);
+            }
+            else {
+                statements.add(
+                    getWeight(method.dependencies()) + CONDITIONAL_WEIGHT, "if ($L) $L", condition, invocation
+                );
+            }
         }
     }
 
@@ -127,19 +840,17 @@ class InjectorClassGenerator {
         return builder.build();
     }
 
-    // The same class name might exist in different packages, so this guarantees uniqueness of the identifier used for
-    // each bean
+    private static int getWeight(List<Dependency> dependencies) {
+        return 1 + dependencies.stream().mapToInt(dependency -> dependency.allBeans().size()).sum();
+    }
+
     private String getIdentifier(Bean bean) {
-        return beanToIdentifier.computeIfAbsent(bean, k -> {
-            String fqn = bean.getFqn();
-            String shortName = fqn.substring(fqn.lastIndexOf('.') + 1);
-            String camelCase = shortName.substring(0, 1).toLowerCase() + shortName.substring(1);
-            String possibleName = camelCase;
-            int attempt = 0;
-            while (beanToIdentifier.containsValue(possibleName)) {
-                possibleName = camelCase + (++attempt);
-            }
-            return possibleName;
-        });
+        return identifiers.get(bean);
+    }
+
+    /**
+     * A parameter of the context's constructor, with the value to use when the no-args constructor is called.
+     */
+    private record ContextParameter(ParameterSpec parameter, CodeBlock defaultValue) {
     }
 }
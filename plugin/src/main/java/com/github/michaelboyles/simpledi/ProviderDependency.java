@@ -27,6 +27,11 @@ class ProviderDependency implements Dependency {
         return emptyList();
     }
 
+    @Override
+    public EdgeKind edgeKind() {
+        return EdgeKind.PROVIDER;
+    }
+
     @Override
     public CodeBlock getArgumentExpression(Function<Bean, String> getIdentifier) {
         return CodeBlock.of("$L", getIdentifier.apply(bean) + PROVIDER_IDENTIFIER_SUFFIX);
@@ -7,6 +7,7 @@ import javax.annotation.processing.AbstractProcessor;
 import javax.annotation.processing.Processor;
 import javax.annotation.processing.RoundEnvironment;
 import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedOptions;
 import javax.annotation.processing.SupportedSourceVersion;
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -16,6 +17,7 @@ import javax.lang.model.SourceVersion;
 import javax.lang.model.element.Element;
 import javax.lang.model.element.ElementKind;
 import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
 import javax.lang.model.element.TypeElement;
 import javax.lang.model.element.VariableElement;
 import javax.lang.model.type.ArrayType;
@@ -23,16 +25,33 @@ import javax.lang.model.type.DeclaredType;
 import javax.lang.model.type.TypeKind;
 import javax.lang.model.type.TypeMirror;
 import javax.lang.model.type.WildcardType;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
 import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.annotation.Annotation;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
 import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import static com.github.michaelboyles.simpledi.Const.CLASS_LIST_RESOURCE;
 import static com.github.michaelboyles.simpledi.Const.COLLECTION_TO_FACTORY_METHOD;
+import static com.github.michaelboyles.simpledi.Const.CONSTRUCTION_TIMES_OPTION;
+import static com.github.michaelboyles.simpledi.Const.GRAPH_DOT_RESOURCE;
+import static com.github.michaelboyles.simpledi.Const.GRAPH_JSON_RESOURCE;
 import static com.github.michaelboyles.simpledi.Const.INJECTOR_CLASS_NAME;
+import static java.util.Collections.emptyMap;
 
 /**
  * An annotation processor which scans for classes annotated with {@link javax.inject.Singleton} and creates a
@@ -40,6 +59,7 @@ import static com.github.michaelboyles.simpledi.Const.INJECTOR_CLASS_NAME;
  */
 @SupportedAnnotationTypes("javax.inject.Singleton")
 @SupportedSourceVersion(SourceVersion.RELEASE_8)
+@SupportedOptions(CONSTRUCTION_TIMES_OPTION)
 @AutoService(Processor.class)
 public class SingletonProcessor extends AbstractProcessor {
     @SneakyThrows
@@ -51,23 +71,100 @@ public class SingletonProcessor extends AbstractProcessor {
         addDependenciesToBeans(discoveredBeans);
         for (Bean bean : discoveredBeans.all()) {
             addInjectMethods(discoveredBeans, bean);
+            addEventListeners(bean);
         }
+        checkSharedBeans(discoveredBeans);
+        checkIndirectBeans(discoveredBeans);
         List<Bean> sortedBeans = discoveredBeans.byNumDependencies();
+        BeanIdentifiers identifiers = new BeanIdentifiers(sortedBeans);
 
         JavaFileObject builderFile = processingEnv.getFiler().createSourceFile(INJECTOR_CLASS_NAME);
         try (PrintWriter out = new PrintWriter(builderFile.openWriter())) {
-            InjectorClassGenerator generator = new InjectorClassGenerator(INJECTOR_CLASS_NAME, sortedBeans);
+            InjectorClassGenerator generator = new InjectorClassGenerator(
+                INJECTOR_CLASS_NAME, sortedBeans, identifiers, discoveredBeans.typeIndex(),
+                processingEnv.getTypeUtils()
+            );
             generator.generateClass().writeTo(out);
         }
+        Set<String> beanNames = sortedBeans.stream().map(identifiers::get).collect(Collectors.toSet());
+        writeDependencyGraph(new DependencyGraph(sortedBeans, identifiers), beanNames);
+        ClassListGenerator classList = new ClassListGenerator(
+            sortedBeans, processingEnv.getElementUtils(), processingEnv.getTypeUtils()
+        );
+        writeResource(CLASS_LIST_RESOURCE, classList.generate());
         return true;
     }
 
+    private void writeDependencyGraph(DependencyGraph graph, Set<String> beanNames) throws IOException {
+        Map<String, Double> beanNameToTime = readConstructionTimes(beanNames);
+        writeResource(GRAPH_JSON_RESOURCE, graph.toJson(beanNameToTime));
+        writeResource(GRAPH_DOT_RESOURCE, graph.toDot(beanNameToTime));
+        if (!beanNameToTime.isEmpty()) {
+            DependencyGraph.CriticalPath criticalPath = graph.criticalPath(beanNameToTime);
+            processingEnv.getMessager().printMessage(
+                Diagnostic.Kind.NOTE,
+                "Startup critical path is %s, taking %s of %s total construction time".formatted(
+                    criticalPath.beans().stream().map(Bean::getFqn).collect(Collectors.joining(" -> ")),
+                    criticalPath.length(), criticalPath.sequentialTime()
+                )
+            );
+        }
+    }
+
+    private Map<String, Double> readConstructionTimes(Set<String> beanNames) throws IOException {
+        String path = processingEnv.getOptions().get(CONSTRUCTION_TIMES_OPTION);
+        if (path == null) return emptyMap();
+
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(Path.of(path))) {
+            properties.load(reader);
+        }
+        Map<String, Double> beanNameToTime = new HashMap<>();
+        for (String beanName : properties.stringPropertyNames()) {
+            String time = properties.getProperty(beanName);
+            double parsedTime;
+            try {
+                parsedTime = Double.parseDouble(time);
+            }
+            catch (NumberFormatException e) {
+                throw new RuntimeException(
+                    "Construction time for bean '%s' in %s is not a number: %s".formatted(beanName, path, time)
+                );
+            }
+            if (!Double.isFinite(parsedTime) || parsedTime < 0) {
+                throw new RuntimeException(
+                    "Construction time for bean '%s' in %s must be finite and not negative: %s".formatted(
+                        beanName, path, time
+                    )
+                );
+            }
+            if (!beanNames.contains(beanName)) {
+                // Probably a typo, or a bean which has since been removed, so it doesn't affect the critical path
+                processingEnv.getMessager().printMessage(
+                    Diagnostic.Kind.WARNING,
+                    "Construction time in %s is for unknown bean '%s'".formatted(path, beanName)
+                );
+                continue;
+            }
+            beanNameToTime.put(beanName, parsedTime);
+        }
+        return beanNameToTime;
+    }
+
+    private void writeResource(String name, String contents) throws IOException {
+        FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", name);
+        try (Writer writer = file.openWriter()) {
+            writer.write(contents);
+        }
+    }
+
     private DiscoveredBeans findBeans(RoundEnvironment roundEnv) {
         return new DiscoveredBeans(
             roundEnv.getElementsAnnotatedWith(Singleton.class).stream()
                 .filter(singleton -> singleton.asType().getKind() == TypeKind.DECLARED)
                 .map(singleton -> new Bean(getName(singleton), (TypeElement) singleton, getConstructor(singleton)))
-                .toList()
+                .toList(),
+            processingEnv.getTypeUtils()
         );
     }
 
@@ -77,6 +174,71 @@ public class SingletonProcessor extends AbstractProcessor {
         return named.value();
     }
 
+    // A shared bean outlives any one context, so it mustn't hold on to a bean which belongs to one context
+    private void checkSharedBeans(DiscoveredBeans discoveredBeans) {
+        for (Bean bean : discoveredBeans.all()) {
+            if (!bean.isShared()) continue;
+            for (Bean dependency : bean.getAllDependencies()) {
+                if (!dependency.isShared()) {
+                    throw new RuntimeException(
+                        "Shared bean %s depends on %s, which is not shared".formatted(
+                            bean.getFqn(), dependency.getFqn()
+                        )
+                    );
+                }
+            }
+        }
+    }
+
+    // Refreshable and striped beans can only be reached via a provider. A dependent which held one directly would keep
+    // a stale instance after a refresh, or bypass the stripes.
+    private void checkIndirectBeans(DiscoveredBeans discoveredBeans) {
+        for (Bean bean : discoveredBeans.all()) {
+            if (bean.isRefreshable() && bean.isStriped()) {
+                throw new RuntimeException("Bean %s can't be both refreshable and striped".formatted(bean.getFqn()));
+            }
+            if (bean.isStriped() && bean.getStripeCount() < 0) {
+                throw new RuntimeException(
+                    "Striped bean %s has a negative number of instances: %d".formatted(
+                        bean.getFqn(), bean.getStripeCount()
+                    )
+                );
+            }
+            String kind = getIndirectKind(bean);
+            if (kind != null && bean.isShared()) {
+                throw new RuntimeException("Bean %s can't be both %s and shared".formatted(bean.getFqn(), kind));
+            }
+            if (kind != null && !bean.eventListeners().isEmpty()) {
+                throw new RuntimeException(
+                    "Bean %s can't have event listeners because it's %s".formatted(bean.getFqn(), kind)
+                );
+            }
+            List<Dependency> dependencies = Stream.concat(
+                bean.dependencies().stream(),
+                bean.injectMethods().stream().flatMap(method -> method.dependencies().stream())
+            ).toList();
+            for (Dependency dependency : dependencies) {
+                for (Bean dependencyBean : dependency.directBeans()) {
+                    String dependencyKind = getIndirectKind(dependencyBean);
+                    if (dependencyKind != null) {
+                        throw new RuntimeException(
+                            "%s depends on %s bean %s, so must use Provider<%s>".formatted(
+                                bean.getFqn(), dependencyKind, dependencyBean.getFqn(),
+                                dependencyBean.typeElement().getSimpleName()
+                            )
+                        );
+                    }
+                }
+            }
+        }
+    }
+
+    private static String getIndirectKind(Bean bean) {
+        if (bean.isRefreshable()) return "refreshable";
+        if (bean.isStriped()) return "striped";
+        return null;
+    }
+
     private ExecutableElement getConstructor(Element singleton) {
         List<ExecutableElement> possibleConstructors = new ArrayList<>();
         for (Element enclosedElement : singleton.getEnclosedElements()) {
@@ -118,23 +280,33 @@ public class SingletonProcessor extends AbstractProcessor {
     }
 
     private Dependency findDependenciesForParam(DiscoveredBeans discoveredBeans, Bean bean, VariableElement parameter) {
+        if (parameter.getAnnotation(ConfigValue.class) != null) {
+            return new ConfigBinder(processingEnv.getTypeUtils()).bind(bean, parameter);
+        }
         TypeMirror paramType = parameter.asType();
         if (paramType.getKind() == TypeKind.ARRAY) {
             TypeMirror arrayType = ((ArrayType) paramType).getComponentType();
             return new CollectionDependency(
                 new ArrayFactoryMethod(arrayType),
-                discoveredBeans.beansExtending(arrayType.toString())
+                discoveredBeans.beansExtending(arrayType)
             );
         }
 
         String paramTypeFqn = parameter.asType().toString();
         boolean isProvider = paramTypeFqn.startsWith(Provider.class.getName());
-        if (isProvider) {
-            return new ProviderDependency(
-                getProviderContents(bean, parameter, discoveredBeans)
-            );
+        boolean isStripedProvider = paramTypeFqn.startsWith(StripedProvider.class.getName());
+        if (isProvider || isStripedProvider) {
+            Bean providedBean = getProviderContents(bean, parameter, discoveredBeans);
+            if (isStripedProvider && !providedBean.isStriped()) {
+                throw new RuntimeException(
+                    "%s requires %s, but %s is not striped".formatted(
+                        bean.getFqn(), paramTypeFqn, providedBean.getFqn()
+                    )
+                );
+            }
+            return new ProviderDependency(providedBean);
         }
-        List<Bean> candidates = discoveredBeans.beansExtending(paramTypeFqn);
+        List<Bean> candidates = discoveredBeans.beansExtending(paramType);
         if (candidates.isEmpty()) {
             for (Map.Entry<Class<?>, CollectionFactoryMethod> entry : COLLECTION_TO_FACTORY_METHOD.entrySet()) {
                 if (paramTypeFqn.startsWith(entry.getKey().getName())) {
@@ -154,7 +326,7 @@ public class SingletonProcessor extends AbstractProcessor {
     private List<Bean> getCollectionContents(VariableElement collectionParameter, DiscoveredBeans discoveredBeans) {
         TypeMirror typeArgument = getSingleGenericTypeParam(collectionParameter);
         if (typeArgument.getKind() == TypeKind.DECLARED) {
-            return discoveredBeans.beansExtending(typeArgument.toString());
+            return discoveredBeans.beansExtending(typeArgument);
         }
         if (typeArgument.getKind() == TypeKind.WILDCARD) {
             WildcardType wildcardType = (WildcardType) typeArgument;
@@ -163,10 +335,10 @@ public class SingletonProcessor extends AbstractProcessor {
                 // include every single bean, which would produce circular dependencies. Instead, a super wildcard
                 // includes just beans with that exact FQN, and not child classes. This is the same way Spring handles
                 // this problem.
-                return discoveredBeans.beansWithExactFqn(wildcardType.getSuperBound().toString());
+                return discoveredBeans.beansWithExactType(wildcardType.getSuperBound());
             }
             if (wildcardType.getExtendsBound() != null) {
-                return discoveredBeans.beansExtending(wildcardType.getExtendsBound().toString());
+                return discoveredBeans.beansExtending(wildcardType.getExtendsBound());
             }
         }
         throw new RuntimeException(
@@ -230,9 +402,43 @@ public class SingletonProcessor extends AbstractProcessor {
     }
 
     private List<ExecutableElement> getInjectAnnotatedMethods(Bean bean) {
+        return getMethodsAnnotatedWith(bean, Inject.class);
+    }
+
+    private void addEventListeners(Bean bean) {
+        for (ExecutableElement method : getMethodsAnnotatedWith(bean, EventListener.class)) {
+            if (method.getParameters().size() != 1) {
+                throw new RuntimeException(
+                    "Event listener %s.%s must have exactly 1 parameter, found %d".formatted(
+                        bean.getFqn(), method.getSimpleName(), method.getParameters().size()
+                    )
+                );
+            }
+            // The generated context is in a different package, so can only call public methods
+            if (!method.getModifiers().contains(Modifier.PUBLIC) || method.getModifiers().contains(Modifier.STATIC)) {
+                throw new RuntimeException(
+                    "Event listener %s.%s must be public and not static".formatted(
+                        bean.getFqn(), method.getSimpleName()
+                    )
+                );
+            }
+            TypeMirror eventType = method.getParameters().get(0).asType();
+            if (eventType.getKind() != TypeKind.DECLARED) {
+                throw new RuntimeException(
+                    "Event listener %s.%s has unsupported event type %s".formatted(
+                        bean.getFqn(), method.getSimpleName(), eventType
+                    )
+                );
+            }
+            boolean async = method.getAnnotation(EventListener.class).async();
+            bean.addEventListener(new EventListenerMethod(method, eventType, async));
+        }
+    }
+
+    private List<ExecutableElement> getMethodsAnnotatedWith(Bean bean, Class<? extends Annotation> annotation) {
         return bean.typeElement().getEnclosedElements().stream()
             .filter(element -> element.getKind() == ElementKind.METHOD)
-            .filter(element -> element.getAnnotation(Inject.class) != null)
+            .filter(element -> element.getAnnotation(annotation) != null)
             .map(ExecutableElement.class::cast)
             .toList();
     }
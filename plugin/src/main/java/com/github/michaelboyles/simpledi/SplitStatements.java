@@ -0,0 +1,109 @@
+package com.github.michaelboyles.simpledi;
+
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterSpec;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+
+import javax.lang.model.element.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * A sequence of statements which will be split across as many methods as necessary to stay well within the JVM's limit
+ * of 64KB of bytecode per method. For small contexts, the statements are added straight to the caller.
+ * <p>
+ * A variable which is only needed while the statements run, e.g. a bean, can be declared as a local variable. If the
+ * statements of a class are split, locals can't be shared between methods, so the caller must add a field for each
+ * of them instead.
+ */
+class SplitStatements {
+    /**
+     * The maximum weight of statements in a single method. A statement's weight is roughly proportional to the number
+     * of beans it references, each of which is a few bytes of bytecode.
+     */
+    private static final int MAX_WEIGHT_PER_METHOD = 1000;
+
+    private final List<List<Statement>> chunks = new ArrayList<>();
+    private int currentWeight = MAX_WEIGHT_PER_METHOD;
+
+    /**
+     * @param weight 1, plus the number of beans which the statement references.
+     */
+    public void add(int weight, String format, Object... args) {
+        add(weight, new Statement(CodeBlock.of(format, args), null));
+    }
+
+    /**
+     * Add a statement which assigns a variable, which is a local variable unless the statements are added to the
+     * method as fields.
+     *
+     * @param weight 1, plus the number of beans which the statement references.
+     * @param format The format of the value which is assigned.
+     */
+    public void declare(int weight, TypeName type, String name, String format, Object... args) {
+        CodeBlock value = CodeBlock.of(format, args);
+        add(weight, new Statement(CodeBlock.of("$L = $L", name, value), CodeBlock.of("$T $L = $L", type, name, value)));
+    }
+
+    private void add(int weight, Statement statement) {
+        if (currentWeight + weight > MAX_WEIGHT_PER_METHOD) {
+            chunks.add(new ArrayList<>());
+            currentWeight = 0;
+        }
+        chunks.get(chunks.size() - 1).add(statement);
+        currentWeight += weight;
+    }
+
+    /**
+     * Whether the statements are too many for one method, so will be split across several.
+     */
+    public boolean isSplit() {
+        return chunks.size() > 1;
+    }
+
+    /**
+     * Add the statements to the given method. If there are too many, they will be put into new private methods in the
+     * given class, and the given method will call each of those in turn.
+     *
+     * @param fields Whether each declared variable is a field. Must be true if the statements are split.
+     */
+    public void addTo(MethodSpec.Builder method, TypeSpec.Builder clazz, String methodNamePrefix, boolean fields) {
+        addTo(method, clazz, methodNamePrefix, List.of(), fields);
+    }
+
+    /**
+     * Add the statements to the given method, as above. Statements may refer to the given parameters of the method,
+     * which are passed on to any new methods.
+     */
+    public void addTo(MethodSpec.Builder method, TypeSpec.Builder clazz, String methodNamePrefix,
+                      List<ParameterSpec> parameters, boolean fields) {
+        if (isSplit() && !fields) {
+            throw new IllegalStateException("Split statements can't declare local variables");
+        }
+        if (chunks.size() == 1) {
+            chunks.get(0).forEach(statement -> method.addStatement(statement.code(fields)));
+            return;
+        }
+        String arguments = parameters.stream().map(parameter -> parameter.name).collect(Collectors.joining(", "));
+        for (int i = 0; i < chunks.size(); ++i) {
+            MethodSpec.Builder chunkMethod = MethodSpec.methodBuilder(methodNamePrefix + i)
+                .addModifiers(Modifier.PRIVATE)
+                .addParameters(parameters);
+            chunks.get(i).forEach(statement -> chunkMethod.addStatement(statement.code(true)));
+            clazz.addMethod(chunkMethod.build());
+            method.addStatement("$L$L($L)", methodNamePrefix, i, arguments);
+        }
+    }
+
+    /**
+     * @param declaration The statement which declares the variable as a local, or null if it doesn't declare one.
+     */
+    private record Statement(CodeBlock assignment, CodeBlock declaration) {
+        CodeBlock code(boolean fields) {
+            return fields || declaration == null ? assignment : declaration;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.github.michaelboyles.simpledi;
+
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Types;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Collections.emptyList;
+
+/**
+ * An index of the types which each bean can be assigned to, built once per round. Every class and interface in a
+ * bean's hierarchy, including interfaces inherited from superclasses and superinterfaces, is given an integer ID. The
+ * closure of each type's supertypes is stored as a bitset of those IDs, and is used to build an inverted index from
+ * each type to the beans which can be assigned to it, so finding the candidates for a raw type is a single lookup. For
+ * parameterized types, e.g. {@code Repository<User>}, the candidates which match
+ * the raw type are then checked with {@link Types#isAssignable}.
+ */
+class TypeIndex {
+    private final List<Bean> beans;
+    private final Types types;
+    private final Map<String, Integer> typeToId = new HashMap<>();
+    private final List<String> idToType = new ArrayList<>();
+    private final Map<String, BitSet> typeToClosure = new HashMap<>();
+    private final List<BitSet> typeIdToBeans = new ArrayList<>();
+    private final Map<String, List<Bean>> assignableCache = new HashMap<>();
+
+    TypeIndex(List<Bean> beans, Types types) {
+        this.beans = beans;
+        this.types = types;
+        for (int beanIdx = 0; beanIdx < beans.size(); ++beanIdx) {
+            BitSet closure = getClosure(beans.get(beanIdx).typeElement());
+            for (int typeId = closure.nextSetBit(0); typeId >= 0; typeId = closure.nextSetBit(typeId + 1)) {
+                typeIdToBeans.get(typeId).set(beanIdx);
+            }
+        }
+    }
+
+    /**
+     * Get every bean which can be assigned to the given type.
+     */
+    public List<Bean> beansAssignableTo(TypeMirror type) {
+        return assignableCache.computeIfAbsent(type.toString(), k -> {
+            Integer typeId = getTypeId(type);
+            if (typeId == null) return emptyList();
+            BitSet candidates = typeIdToBeans.get(typeId);
+            List<Bean> result = new ArrayList<>(candidates.cardinality());
+            boolean isParameterized = !((DeclaredType) type).getTypeArguments().isEmpty();
+            for (int beanIdx = candidates.nextSetBit(0); beanIdx >= 0; beanIdx = candidates.nextSetBit(beanIdx + 1)) {
+                Bean bean = beans.get(beanIdx);
+                if (!isParameterized || types.isAssignable(bean.typeElement().asType(), type)) {
+                    result.add(bean);
+                }
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Get every bean whose class is exactly the given type, and not a subclass of it.
+     */
+    public List<Bean> beansWithExactType(TypeMirror type) {
+        String erasure = getErasedName(type);
+        return beansAssignableTo(type).stream()
+            .filter(bean -> bean.getFqn().equals(erasure))
+            .toList();
+    }
+
+    /**
+     * Get the fully-qualified names of every class and interface which the bean can be assigned to, excluding its own
+     * class.
+     */
+    public List<String> supertypes(Bean bean) {
+        BitSet closure = typeToClosure.get(bean.getFqn());
+        int self = typeToId.get(bean.getFqn());
+        List<String> supertypes = new ArrayList<>(closure.cardinality() - 1);
+        for (int typeId = closure.nextSetBit(0); typeId >= 0; typeId = closure.nextSetBit(typeId + 1)) {
+            if (typeId != self) {
+                supertypes.add(idToType.get(typeId));
+            }
+        }
+        return supertypes;
+    }
+
+    private Integer getTypeId(TypeMirror type) {
+        if (type.getKind() != TypeKind.DECLARED) return null;
+        return typeToId.get(getErasedName(type));
+    }
+
+    private String getErasedName(TypeMirror type) {
+        return types.erasure(type).toString();
+    }
+
+    // Closures are cached per type, so a hierarchy which is shared by many beans is only walked once
+    private BitSet getClosure(TypeElement typeElement) {
+        String fqn = typeElement.getQualifiedName().toString();
+        BitSet closure = typeToClosure.get(fqn);
+        if (closure != null) return closure;
+
+        closure = new BitSet();
+        closure.set(intern(fqn));
+        for (TypeMirror supertype : types.directSupertypes(typeElement.asType())) {
+            if (supertype.getKind() == TypeKind.DECLARED) {
+                closure.or(getClosure((TypeElement) ((DeclaredType) supertype).asElement()));
+            }
+        }
+        typeToClosure.put(fqn, closure);
+        return closure;
+    }
+
+    private int intern(String fqn) {
+        return typeToId.computeIfAbsent(fqn, k -> {
+            idToType.add(fqn);
+            typeIdToBeans.add(new BitSet());
+            return typeIdToBeans.size() - 1;
+        });
+    }
+}
@@ -0,0 +1,69 @@
+package com.github.michaelboyles.simpledi;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Delivers events to a single asynchronous listener. Events are queued, and at most one task is scheduled on the
+ * executor at a time; that task delivers every event which is queued when it runs, up to a maximum batch size. This
+ * means a burst of events costs a single handoff between threads, rather than one per event. Events are delivered in
+ * the order they were submitted. If the executor rejects the task, {@link #submit} throws, but the event stays queued
+ * and is delivered by the next task which is scheduled. This class is only expected to be used by the generated DI
+ * context.
+ *
+ * @param <E> The type of event.
+ */
+public class BatchingEventDispatcher<E> implements Runnable {
+    private static final int MAX_BATCH_SIZE = 256;
+
+    private final Queue<E> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final Executor executor;
+    private final Consumer<? super E> listener;
+
+    @SuppressWarnings("unused") // Called by generated code only
+    public BatchingEventDispatcher(Executor executor, Consumer<? super E> listener) {
+        this.executor = executor;
+        this.listener = listener;
+    }
+
+    @SuppressWarnings("unused") // Called by generated code only
+    public void submit(E event) {
+        if (event == null) throw new NullPointerException();
+        queue.add(event);
+        scheduleIfIdle();
+    }
+
+    @Override
+    public void run() {
+        try {
+            E event;
+            for (int i = 0; i < MAX_BATCH_SIZE && (event = queue.poll()) != null; ++i) {
+                listener.accept(event);
+            }
+        }
+        finally {
+            // If the listener threw, the remaining events are still queued and will go in the next batch
+            scheduled.set(false);
+            if (!queue.isEmpty()) {
+                scheduleIfIdle();
+            }
+        }
+    }
+
+    private void scheduleIfIdle() {
+        if (!scheduled.get() && scheduled.compareAndSet(false, true)) {
+            try {
+                executor.execute(this);
+            }
+            catch (RuntimeException | Error e) {
+                // The executor rejected the task, so allow the next submit to try again
+                scheduled.set(false);
+                throw e;
+            }
+        }
+    }
+}
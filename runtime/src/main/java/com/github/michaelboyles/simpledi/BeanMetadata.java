@@ -0,0 +1,279 @@
+package com.github.michaelboyles.simpledi;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A description of every bean in a generated DI context: its name, type, supertypes, dependencies and scope. Beans are
+ * identified by their index, which is the same index used by the context's {@code getBean(int)}. Every query is a
+ * lookup in a primitive array, so tools can walk the graph without reflection and without allocating.
+ * <p>
+ * The generated context creates a single instance in a static initializer.
+ */
+public final class BeanMetadata {
+    /**
+     * A single instance of the bean exists per context.
+     */
+    public static final int SCOPE_SINGLETON = 0;
+    /**
+     * A single instance of the bean is shared by every context created from the same template.
+     */
+    public static final int SCOPE_SHARED = 1;
+    /**
+     * A single instance of the bean exists per context at a time, but it can be replaced by refreshing it.
+     */
+    public static final int SCOPE_REFRESHABLE = 2;
+    /**
+     * Several instances of the bean exist per context, and the context's {@code getBean(int)} returns their
+     * {@link StripedProvider}.
+     */
+    public static final int SCOPE_STRIPED = 3;
+
+    private static final String ELEMENT_SEPARATOR = ",";
+    private static final String LIST_SEPARATOR = ";";
+
+    private final String[] names;
+    private final String[] typeNames;
+    private final int[] beanToType;
+    private final int[] supertypeOffsets;
+    private final int[] supertypes;
+    private final int[] dependencyOffsets;
+    private final int[] dependencies;
+    private final int[] dependentOffsets;
+    private final int[] dependents;
+    private final int[] scopes;
+    private final Map<String, Integer> nameToIndex;
+
+    /**
+     * Each parameter is encoded as a string, split into chunks to stay within the limits of the class file format. See
+     * the generated context for the format, which is an implementation detail.
+     */
+    @SuppressWarnings("unused") // Called by generated code only
+    public BeanMetadata(String[] names, String[] typeNames, String[] beanToType, String[] supertypes,
+                        String[] dependencies, String[] scopes) {
+        this.names = decodeStrings(names);
+        this.typeNames = decodeStrings(typeNames);
+        this.beanToType = decodeInts(join(beanToType));
+        this.scopes = decodeInts(join(scopes));
+
+        String[] supertypeLists = splitLists(join(supertypes), this.names.length);
+        this.supertypeOffsets = new int[this.names.length + 1];
+        this.supertypes = decodeLists(supertypeLists, supertypeOffsets);
+
+        String[] dependencyLists = splitLists(join(dependencies), this.names.length);
+        this.dependencyOffsets = new int[this.names.length + 1];
+        this.dependencies = decodeLists(dependencyLists, dependencyOffsets);
+        this.dependentOffsets = new int[this.names.length + 1];
+        this.dependents = invert(dependencyOffsets, this.dependencies, dependentOffsets);
+
+        this.nameToIndex = new HashMap<>();
+        for (int i = 0; i < this.names.length; ++i) {
+            nameToIndex.put(this.names[i], i);
+        }
+    }
+
+    /**
+     * Get the number of beans.
+     */
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * Get the index of the bean with the given name, or -1 if there is no such bean.
+     */
+    public int indexOf(String name) {
+        Integer index = nameToIndex.get(name);
+        return index == null ? -1 : index;
+    }
+
+    public String name(int bean) {
+        return names[bean];
+    }
+
+    /**
+     * Get the fully-qualified name of the bean's class.
+     */
+    public String typeName(int bean) {
+        return typeNames[beanToType[bean]];
+    }
+
+    /**
+     * Get the fully-qualified name of the class of the object which the context's {@code getBean(int)} returns for the
+     * bean. This is the bean's own class, except for a striped bean, whose instances are returned as a
+     * {@link StripedProvider}.
+     */
+    public String instanceTypeName(int bean) {
+        return scopes[bean] == SCOPE_STRIPED ? StripedProvider.class.getName() : typeName(bean);
+    }
+
+    /**
+     * Get the number of classes and interfaces which the bean can be assigned to, excluding its own class.
+     */
+    public int supertypeCount(int bean) {
+        return supertypeOffsets[bean + 1] - supertypeOffsets[bean];
+    }
+
+    /**
+     * Get the fully-qualified name of one of the bean's supertypes.
+     *
+     * @param i An index from 0 (inclusive) to {@link #supertypeCount} (exclusive).
+     */
+    public String supertype(int bean, int i) {
+        return typeNames[supertypes[supertypeOffsets[bean] + i]];
+    }
+
+    /**
+     * Check whether the bean is of the given type or one of its subtypes.
+     */
+    public boolean isAssignableTo(int bean, String typeName) {
+        if (typeName(bean).equals(typeName)) return true;
+        for (int i = supertypeOffsets[bean]; i < supertypeOffsets[bean + 1]; ++i) {
+            if (typeNames[supertypes[i]].equals(typeName)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Check whether the given object is an instance of the bean's class, so could be used in place of the bean. Only
+     * the names of classes are compared, so this doesn't load the bean's class.
+     */
+    public boolean isInstance(int bean, Object object) {
+        String typeName = typeName(bean);
+        for (Class<?> clazz = object.getClass(); clazz != null; clazz = clazz.getSuperclass()) {
+            if (typeName.equals(clazz.getCanonicalName())) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Get the number of beans which this bean requires, whether by its constructor, a {@code Provider} or an inject
+     * method.
+     */
+    public int dependencyCount(int bean) {
+        return dependencyOffsets[bean + 1] - dependencyOffsets[bean];
+    }
+
+    /**
+     * Get the index of one of the beans which this bean requires.
+     *
+     * @param i An index from 0 (inclusive) to {@link #dependencyCount} (exclusive).
+     */
+    public int dependency(int bean, int i) {
+        return dependencies[dependencyOffsets[bean] + i];
+    }
+
+    /**
+     * Get the number of beans which require this bean.
+     */
+    public int dependentCount(int bean) {
+        return dependentOffsets[bean + 1] - dependentOffsets[bean];
+    }
+
+    /**
+     * Get the index of one of the beans which require this bean.
+     *
+     * @param i An index from 0 (inclusive) to {@link #dependentCount} (exclusive).
+     */
+    public int dependent(int bean, int i) {
+        return dependents[dependentOffsets[bean] + i];
+    }
+
+    /**
+     * Get the given beans, plus every bean which requires any of them, directly or indirectly. These are the beans
+     * which would have to be rebuilt if the given beans were replaced.
+     */
+    public BitSet withDependents(BitSet beans) {
+        BitSet result = (BitSet) beans.clone();
+        int[] pending = new int[names.length];
+        int numPending = 0;
+        for (int bean = beans.nextSetBit(0); bean >= 0; bean = beans.nextSetBit(bean + 1)) {
+            pending[numPending++] = bean;
+        }
+        // Each bean is added at most once, so cycles terminate
+        while (numPending > 0) {
+            int bean = pending[--numPending];
+            for (int i = dependentOffsets[bean]; i < dependentOffsets[bean + 1]; ++i) {
+                if (!result.get(dependents[i])) {
+                    result.set(dependents[i]);
+                    pending[numPending++] = dependents[i];
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the bean's scope, which is one of the {@code SCOPE_} constants in this class.
+     */
+    public int scope(int bean) {
+        return scopes[bean];
+    }
+
+    private static String join(String[] chunks) {
+        return String.join("", chunks);
+    }
+
+    private static String[] decodeStrings(String[] chunks) {
+        String joined = join(chunks);
+        if (joined.isEmpty()) return new String[0];
+        String[] strings = joined.split(ELEMENT_SEPARATOR, -1);
+        for (int i = 0; i < strings.length; ++i) {
+            strings[i] = strings[i].intern();
+        }
+        return strings;
+    }
+
+    private static int[] decodeInts(String encoded) {
+        if (encoded.isEmpty()) return new int[0];
+        String[] elements = encoded.split(ELEMENT_SEPARATOR, -1);
+        int[] ints = new int[elements.length];
+        for (int i = 0; i < elements.length; ++i) {
+            ints[i] = Integer.parseInt(elements[i]);
+        }
+        return ints;
+    }
+
+    private static String[] splitLists(String encoded, int numLists) {
+        if (numLists == 0) return new String[0];
+        String[] lists = encoded.split(LIST_SEPARATOR, -1);
+        if (lists.length != numLists) {
+            throw new IllegalArgumentException("Expected " + numLists + " lists, found " + lists.length);
+        }
+        return lists;
+    }
+
+    // Reverses the edges of a flattened list of lists, filling in the offsets of the result
+    private static int[] invert(int[] offsets, int[] edges, int[] invertedOffsets) {
+        int numLists = offsets.length - 1;
+        for (int edge : edges) {
+            invertedOffsets[edge + 1]++;
+        }
+        for (int i = 0; i < numLists; ++i) {
+            invertedOffsets[i + 1] += invertedOffsets[i];
+        }
+        int[] inverted = new int[edges.length];
+        int[] next = invertedOffsets.clone();
+        for (int from = 0; from < numLists; ++from) {
+            for (int i = offsets[from]; i < offsets[from + 1]; ++i) {
+                inverted[next[edges[i]]++] = from;
+            }
+        }
+        return inverted;
+    }
+
+    // Flattens a list of lists into a single array. The elements of list i are from offsets[i] to offsets[i + 1]
+    private static int[] decodeLists(String[] lists, int[] offsets) {
+        int[][] decoded = new int[lists.length][];
+        for (int i = 0; i < lists.length; ++i) {
+            decoded[i] = decodeInts(lists[i]);
+            offsets[i + 1] = offsets[i] + decoded[i].length;
+        }
+        int[] flattened = new int[offsets[lists.length]];
+        for (int i = 0; i < lists.length; ++i) {
+            System.arraycopy(decoded[i], 0, flattened, offsets[i], decoded[i].length);
+        }
+        return flattened;
+    }
+}
@@ -0,0 +1,216 @@
+package com.github.michaelboyles.simpledi;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Configuration values for a DI context, read from a flat file of keys and values. Each line is {@code key=value} or
+ * {@code key: value}, and lines starting with {@code #} or {@code !} are comments, as in a properties file. Unlike
+ * {@link java.util.Properties}, escape sequences and line continuations are not supported, and the file is read in a
+ * single pass with no synchronization.
+ * <p>
+ * The typed getters are called by the generated context, which converts every value with a direct call rather than
+ * reflection.
+ */
+public final class ConfigSource {
+    /**
+     * A system property which can be set to the path of a config file, to override the default of
+     * {@value #DEFAULT_RESOURCE} on the classpath.
+     */
+    public static final String PATH_PROPERTY = "simpledi.config";
+    public static final String DEFAULT_RESOURCE = "simpledi.properties";
+
+    private final Map<String, String> values;
+
+    private ConfigSource(Map<String, String> values) {
+        this.values = values;
+    }
+
+    /**
+     * Load config from the file named by the {@value #PATH_PROPERTY} system property if set, otherwise from
+     * {@value #DEFAULT_RESOURCE} on the classpath, if it exists.
+     */
+    public static ConfigSource load() {
+        try {
+            String path = System.getProperty(PATH_PROPERTY);
+            if (path != null) {
+                try (Reader reader = Files.newBufferedReader(Path.of(path))) {
+                    return read(reader);
+                }
+            }
+            InputStream resource = Thread.currentThread().getContextClassLoader().getResourceAsStream(DEFAULT_RESOURCE);
+            if (resource == null) return of(Map.of());
+            try (Reader reader = new InputStreamReader(resource, StandardCharsets.UTF_8)) {
+                return read(reader);
+            }
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Failed to read config", e);
+        }
+    }
+
+    public static ConfigSource read(Reader reader) throws IOException {
+        Map<String, String> values = new HashMap<>();
+        BufferedReader lines = (reader instanceof BufferedReader buffered) ? buffered : new BufferedReader(reader);
+        String line;
+        while ((line = lines.readLine()) != null) {
+            line = line.strip();
+            if (line.isEmpty() || line.charAt(0) == '#' || line.charAt(0) == '!') continue;
+
+            int separator = indexOfSeparator(line);
+            if (separator < 0) {
+                values.put(line, "");
+            }
+            else {
+                values.put(line.substring(0, separator).strip(), line.substring(separator + 1).strip());
+            }
+        }
+        return new ConfigSource(values);
+    }
+
+    public static ConfigSource of(Map<String, String> values) {
+        return new ConfigSource(Map.copyOf(values));
+    }
+
+    /**
+     * Check that every one of the given keys is present, so that all missing keys can be reported at once.
+     */
+    @SuppressWarnings("unused") // Called by generated code only
+    public void requireKeys(String... keys) {
+        List<String> missing = new ArrayList<>();
+        for (String key : keys) {
+            if (!values.containsKey(key)) {
+                missing.add(key);
+            }
+        }
+        if (!missing.isEmpty()) {
+            throw new IllegalStateException("Missing required config keys: " + String.join(", ", missing));
+        }
+    }
+
+    /**
+     * Get a value, or the default if it's missing.
+     *
+     * @param defaultValue The default, or {@link ConfigValue#NO_DEFAULT} if the key is required.
+     */
+    public String getString(String key, String defaultValue) {
+        String value = values.get(key);
+        if (value != null) return value;
+        if (ConfigValue.NO_DEFAULT.equals(defaultValue)) {
+            throw new IllegalStateException("Missing required config key: " + key);
+        }
+        return defaultValue;
+    }
+
+    public int getInt(String key, String defaultValue) {
+        String value = getString(key, defaultValue);
+        try {
+            return Integer.parseInt(value);
+        }
+        catch (NumberFormatException e) {
+            throw invalid(key, value, "int");
+        }
+    }
+
+    public long getLong(String key, String defaultValue) {
+        String value = getString(key, defaultValue);
+        try {
+            return Long.parseLong(value);
+        }
+        catch (NumberFormatException e) {
+            throw invalid(key, value, "long");
+        }
+    }
+
+    public short getShort(String key, String defaultValue) {
+        String value = getString(key, defaultValue);
+        try {
+            return Short.parseShort(value);
+        }
+        catch (NumberFormatException e) {
+            throw invalid(key, value, "short");
+        }
+    }
+
+    public byte getByte(String key, String defaultValue) {
+        String value = getString(key, defaultValue);
+        try {
+            return Byte.parseByte(value);
+        }
+        catch (NumberFormatException e) {
+            throw invalid(key, value, "byte");
+        }
+    }
+
+    public double getDouble(String key, String defaultValue) {
+        String value = getString(key, defaultValue);
+        try {
+            return Double.parseDouble(value);
+        }
+        catch (NumberFormatException e) {
+            throw invalid(key, value, "double");
+        }
+    }
+
+    public float getFloat(String key, String defaultValue) {
+        String value = getString(key, defaultValue);
+        try {
+            return Float.parseFloat(value);
+        }
+        catch (NumberFormatException e) {
+            throw invalid(key, value, "float");
+        }
+    }
+
+    public char getChar(String key, String defaultValue) {
+        String value = getString(key, defaultValue);
+        if (value.length() != 1) throw invalid(key, value, "char");
+        return value.charAt(0);
+    }
+
+    public boolean getBoolean(String key, String defaultValue) {
+        String value = getString(key, defaultValue);
+        if ("true".equalsIgnoreCase(value)) return true;
+        if ("false".equalsIgnoreCase(value)) return false;
+        throw invalid(key, value, "boolean");
+    }
+
+    /**
+     * @param valueOf The enum's {@code valueOf} method.
+     */
+    public <E extends Enum<E>> E getEnum(String key, String defaultValue, Function<String, E> valueOf) {
+        String value = getString(key, defaultValue);
+        try {
+            return valueOf.apply(value);
+        }
+        catch (IllegalArgumentException e) {
+            throw invalid(key, value, "enum constant");
+        }
+    }
+
+    private static int indexOfSeparator(String line) {
+        for (int i = 0; i < line.length(); ++i) {
+            char c = line.charAt(i);
+            if (c == '=' || c == ':') return i;
+        }
+        return -1;
+    }
+
+    private static IllegalStateException invalid(String key, String value, String type) {
+        return new IllegalStateException("Config key '%s' has value '%s' which is not a valid %s".formatted(
+            key, value, type
+        ));
+    }
+}
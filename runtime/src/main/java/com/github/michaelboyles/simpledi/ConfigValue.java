@@ -0,0 +1,33 @@
+package com.github.michaelboyles.simpledi;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a parameter of a {@link javax.inject.Singleton}'s constructor or inject method as a configuration value, which
+ * is read from the context's {@link ConfigSource} rather than wired from another bean. Supported types are
+ * {@code String}, primitives and their boxed types, enums, and records whose components are themselves supported. A
+ * record's components are read from keys prefixed with this key, e.g. {@code db.url} and {@code db.port} for a record
+ * with components {@code url} and {@code port} and a key of {@code db}.
+ */
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.SOURCE)
+public @interface ConfigValue {
+    /**
+     * A marker for {@link #defaultValue()} which means there's no default, so the key is required.
+     */
+    String NO_DEFAULT = "\u0000";
+
+    /**
+     * The configuration key.
+     */
+    String value();
+
+    /**
+     * The value to use if the key is missing. If there's no default, the context will fail to start if the key is
+     * missing. Not supported for records.
+     */
+    String defaultValue() default NO_DEFAULT;
+}
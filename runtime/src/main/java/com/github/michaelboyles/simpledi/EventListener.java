@@ -0,0 +1,22 @@
+package com.github.michaelboyles.simpledi;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a method of a {@link javax.inject.Singleton} as a listener for events. The method must be public, and accept
+ * exactly one parameter, which is the type of event it listens for. The generated DI context will have a
+ * {@code publish} method for each event type, which calls every matching synchronous listener directly, and then
+ * hands the event to every matching asynchronous listener.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.SOURCE)
+public @interface EventListener {
+    /**
+     * Whether the listener should be called asynchronously. Asynchronous events are queued per listener and delivered
+     * in batches by a {@link BatchingEventDispatcher}.
+     */
+    boolean async() default false;
+}
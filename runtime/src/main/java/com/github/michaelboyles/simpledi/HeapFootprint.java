@@ -0,0 +1,230 @@
+package com.github.michaelboyles.simpledi;
+
+import java.lang.instrument.Instrumentation;
+import java.lang.reflect.Field;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * A diagnostic report of how much heap each bean in a DI context uses, without taking a heap dump. Measure a context
+ * with {@code HeapFootprint.measure(SimpleDIContext.metadata(), context::getBean)}.
+ * <p>
+ * Each bean's shallow size is the size of the bean object itself. Its retained size also includes every object which
+ * can only be reached from that bean, and which would be freed if the bean were. Objects which can be reached from
+ * more than one bean are counted once, as shared, rather than towards any of those beans. References from one bean to
+ * another are dependencies, so they aren't followed.
+ * <p>
+ * Objects are found by reading fields reflectively. Fields of classes in modules which aren't open, such as the JDK's
+ * collections, can't be read, so the contents of collections and maps are found by iterating them instead, and the
+ * characters of strings are estimated. Run with {@code --add-opens} to measure those classes more precisely.
+ * <p>
+ * Sizes are exact if {@link HeapFootprintAgent} is attached, and otherwise estimated from the layout of each class.
+ */
+public final class HeapFootprint {
+    private static final int SHARED = -1;
+
+    private final List<BeanFootprint> beans;
+    private final long sharedSize;
+    private final boolean exact;
+
+    private HeapFootprint(List<BeanFootprint> beans, long sharedSize, boolean exact) {
+        this.beans = beans;
+        this.sharedSize = sharedSize;
+        this.exact = exact;
+    }
+
+    /**
+     * Measure every bean in a context.
+     *
+     * @param metadata The metadata of the context
+     * @param getBean A function to get the bean with the given index in the metadata
+     */
+    public static HeapFootprint measure(BeanMetadata metadata, IntFunction<Object> getBean) {
+        Instrumentation instrumentation = HeapFootprintAgent.instrumentation();
+        ToLongFunction<Object> sizer = instrumentation != null
+            ? instrumentation::getObjectSize
+            : ObjectLayout::estimateSize;
+
+        Object[] instances = new Object[metadata.size()];
+        Map<Object, Integer> beanIndexes = new IdentityHashMap<>();
+        for (int i = 0; i < instances.length; ++i) {
+            instances[i] = getBean.apply(i);
+            if (instances[i] != null) {
+                beanIndexes.put(instances[i], i);
+            }
+        }
+
+        // Walk from each bean in turn. An object keeps the index of the first bean to reach it, until it's reached
+        // from a second bean, when it becomes shared. Everything reachable from a shared object is also reachable from
+        // both of those beans, so it's already shared and needn't be walked again.
+        Map<Object, Integer> owners = new IdentityHashMap<>();
+        Deque<Object> pending = new ArrayDeque<>();
+        for (int i = 0; i < instances.length; ++i) {
+            if (instances[i] == null) continue;
+            Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+            addReferences(instances[i], beanIndexes, pending);
+            while (!pending.isEmpty()) {
+                Object object = pending.pop();
+                if (!visited.add(object)) continue;
+                Integer owner = owners.get(object);
+                if (owner == null) {
+                    owners.put(object, i);
+                }
+                else if (owner == SHARED) {
+                    continue;
+                }
+                else if (owner != i) {
+                    owners.put(object, SHARED);
+                }
+                addReferences(object, beanIndexes, pending);
+            }
+        }
+
+        long[] retainedSizes = new long[instances.length];
+        long sharedSize = 0;
+        for (Map.Entry<Object, Integer> entry : owners.entrySet()) {
+            long size = sizeOf(entry.getKey(), sizer);
+            if (entry.getValue() == SHARED) {
+                sharedSize += size;
+            }
+            else {
+                retainedSizes[entry.getValue()] += size;
+            }
+        }
+
+        List<BeanFootprint> beans = new ArrayList<>(instances.length);
+        for (int i = 0; i < instances.length; ++i) {
+            if (instances[i] == null) continue;
+            long shallowSize = sizeOf(instances[i], sizer);
+            beans.add(new BeanFootprint(
+                metadata.name(i), metadata.instanceTypeName(i), metadata.scope(i), shallowSize,
+                shallowSize + retainedSizes[i]
+            ));
+        }
+        beans.sort(
+            Comparator.comparingLong(BeanFootprint::retainedSize).reversed().thenComparing(BeanFootprint::name)
+        );
+        return new HeapFootprint(List.copyOf(beans), sharedSize, instrumentation != null);
+    }
+
+    private static void addReferences(Object object, Map<Object, Integer> beanIndexes, Deque<Object> pending) {
+        if (object instanceof Object[] array) {
+            for (Object element : array) {
+                addReference(element, beanIndexes, pending);
+            }
+            return;
+        }
+        if (object.getClass().isArray()) return;
+
+        ObjectLayout layout = ObjectLayout.of(object.getClass());
+        for (Field field : layout.referenceFields()) {
+            try {
+                addReference(field.get(object), beanIndexes, pending);
+            }
+            catch (IllegalAccessException e) {
+                throw new IllegalStateException("Field should have been made accessible: " + field, e);
+            }
+        }
+        if (layout.isOpaque()) {
+            if (object instanceof Collection<?> collection) {
+                for (Object element : collection) {
+                    addReference(element, beanIndexes, pending);
+                }
+            }
+            else if (object instanceof Map<?, ?> map) {
+                for (Map.Entry<?, ?> entry : map.entrySet()) {
+                    addReference(entry.getKey(), beanIndexes, pending);
+                    addReference(entry.getValue(), beanIndexes, pending);
+                }
+            }
+        }
+    }
+
+    private static void addReference(Object referent, Map<Object, Integer> beanIndexes, Deque<Object> pending) {
+        // Classes and class loaders are shared by everything, so would only make the shared size meaningless
+        if (referent == null || referent instanceof Class<?> || referent instanceof ClassLoader) return;
+        if (beanIndexes.containsKey(referent)) return;
+        pending.push(referent);
+    }
+
+    private static long sizeOf(Object object, ToLongFunction<Object> sizer) {
+        long size = sizer.applyAsLong(object);
+        // The array which holds a string's characters can't be read, so assume one byte per character
+        if (object instanceof String string && ObjectLayout.of(String.class).isOpaque()) {
+            size += ObjectLayout.estimateByteArraySize(string.length());
+        }
+        return size;
+    }
+
+    /**
+     * Get the footprint of each bean, largest retained size first.
+     */
+    public List<BeanFootprint> beans() {
+        return beans;
+    }
+
+    /**
+     * Get the total size of the objects which are reachable from more than one bean.
+     */
+    public long sharedSize() {
+        return sharedSize;
+    }
+
+    /**
+     * Get the total size of every bean and every object reachable from a bean.
+     */
+    public long totalSize() {
+        return sharedSize + beans.stream().mapToLong(BeanFootprint::retainedSize).sum();
+    }
+
+    /**
+     * Whether sizes were measured by the JVM, rather than estimated.
+     */
+    public boolean isExact() {
+        return exact;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder()
+            .append("Heap footprint of ").append(beans.size()).append(" beans, ")
+            .append(exact ? "measured by agent" : "estimated from class layouts")
+            .append(": ").append(totalSize()).append(" bytes\n")
+            .append(String.format("%12s %12s  %s%n", "retained", "shallow", "bean"));
+        for (BeanFootprint bean : beans) {
+            report.append(String.format(
+                "%12d %12d  %s (%s)%s%n",
+                bean.retainedSize(), bean.shallowSize(), bean.name(), bean.typeName(),
+                switch (bean.scope()) {
+                    case BeanMetadata.SCOPE_SHARED -> " [shared scope]";
+                    case BeanMetadata.SCOPE_STRIPED -> " [striped scope]";
+                    default -> "";
+                }
+            ));
+        }
+        report.append(String.format("%12d %12s  (reachable from more than one bean)%n", sharedSize, "-"));
+        return report.toString();
+    }
+
+    /**
+     * The heap used by one bean.
+     *
+     * @param name The name of the bean
+     * @param typeName The fully-qualified name of the measured object's class, which is a striped bean's provider
+     * @param scope The scope of the bean, one of the {@code SCOPE_} constants of {@link BeanMetadata}
+     * @param shallowSize The size in bytes of the bean object itself
+     * @param retainedSize The size in bytes of the bean and every object only reachable from it
+     */
+    public record BeanFootprint(String name, String typeName, int scope, long shallowSize, long retainedSize) {
+    }
+}
@@ -0,0 +1,30 @@
+package com.github.michaelboyles.simpledi;
+
+import java.lang.instrument.Instrumentation;
+
+/**
+ * An optional Java agent which gives {@link HeapFootprint} exact object sizes. The runtime jar is its own agent, so it
+ * can be attached at startup with {@code -javaagent:simple-di-runtime.jar}, or to a running JVM. Without it, sizes are
+ * estimated from the layout of each class.
+ */
+public final class HeapFootprintAgent {
+    private static volatile Instrumentation instrumentation;
+
+    private HeapFootprintAgent() {
+    }
+
+    public static void premain(String args, Instrumentation instrumentation) {
+        HeapFootprintAgent.instrumentation = instrumentation;
+    }
+
+    public static void agentmain(String args, Instrumentation instrumentation) {
+        HeapFootprintAgent.instrumentation = instrumentation;
+    }
+
+    /**
+     * Get the instrumentation which the agent was started with, or null if the agent isn't attached.
+     */
+    static Instrumentation instrumentation() {
+        return instrumentation;
+    }
+}
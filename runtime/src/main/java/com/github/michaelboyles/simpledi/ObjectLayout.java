@@ -0,0 +1,100 @@
+package com.github.michaelboyles.simpledi;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The fields of a class which hold references, and an estimate of the size of its instances. The estimate assumes a
+ * 64-bit JVM with compressed class pointers and compressed references, which is the default for heaps under 32GB: a
+ * 12 byte object header, 4 byte references, and every object padded to a multiple of 8 bytes.
+ */
+final class ObjectLayout {
+    private static final int OBJECT_HEADER_BYTES = 12;
+    private static final int ARRAY_HEADER_BYTES = 16;
+    private static final int REFERENCE_BYTES = 4;
+    private static final int ALIGNMENT_BYTES = 8;
+
+    private static final ClassValue<ObjectLayout> LAYOUTS = new ClassValue<>() {
+        @Override
+        protected ObjectLayout computeValue(Class<?> clazz) {
+            return new ObjectLayout(clazz);
+        }
+    };
+
+    private final List<Field> referenceFields = new ArrayList<>();
+    private final long instanceSize;
+    private final boolean opaque;
+
+    private ObjectLayout(Class<?> clazz) {
+        long size = OBJECT_HEADER_BYTES;
+        boolean opaque = false;
+        for (Class<?> current = clazz; current != null; current = current.getSuperclass()) {
+            for (Field field : current.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers())) continue;
+                size += sizeOf(field.getType());
+                if (field.getType().isPrimitive()) continue;
+                // Fails for classes in modules which aren't open to us, e.g. most of the JDK
+                if (field.trySetAccessible()) {
+                    referenceFields.add(field);
+                }
+                else {
+                    opaque = true;
+                }
+            }
+        }
+        this.instanceSize = align(size);
+        this.opaque = opaque;
+    }
+
+    static ObjectLayout of(Class<?> clazz) {
+        return LAYOUTS.get(clazz);
+    }
+
+    /**
+     * Estimate the shallow size of the given object, i.e. excluding any objects it refers to.
+     */
+    static long estimateSize(Object object) {
+        Class<?> clazz = object.getClass();
+        if (clazz.isArray()) {
+            return align(ARRAY_HEADER_BYTES + (long) Array.getLength(object) * sizeOf(clazz.getComponentType()));
+        }
+        return of(clazz).instanceSize;
+    }
+
+    /**
+     * Estimate the size of a byte array of the given length.
+     */
+    static long estimateByteArraySize(int length) {
+        return align(ARRAY_HEADER_BYTES + (long) length);
+    }
+
+    /**
+     * Get the reference fields which can be read, all of which have been made accessible.
+     */
+    List<Field> referenceFields() {
+        return referenceFields;
+    }
+
+    /**
+     * Whether some reference fields couldn't be made accessible, so the objects they refer to can't be found by
+     * reading fields.
+     */
+    boolean isOpaque() {
+        return opaque;
+    }
+
+    private static int sizeOf(Class<?> type) {
+        if (type == long.class || type == double.class) return 8;
+        if (type == int.class || type == float.class) return 4;
+        if (type == short.class || type == char.class) return 2;
+        if (type == byte.class || type == boolean.class) return 1;
+        return REFERENCE_BYTES;
+    }
+
+    private static long align(long size) {
+        return (size + ALIGNMENT_BYTES - 1) / ALIGNMENT_BYTES * ALIGNMENT_BYTES;
+    }
+}
@@ -0,0 +1,19 @@
+package com.github.michaelboyles.simpledi;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a {@link javax.inject.Singleton} which can be rebuilt while the application is running, e.g. to pick up new
+ * configuration, by calling {@code refresh} on the generated DI context.
+ * <p>
+ * Other beans must depend on a refreshable bean via a {@link javax.inject.Provider}, which always returns the latest
+ * instance. Depending on it directly, or in a collection, is an error, because the dependent would keep the old
+ * instance forever. A refreshable bean can't also be {@link Shared} or have event listeners.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.SOURCE)
+public @interface Refreshable {
+}
@@ -0,0 +1,41 @@
+package com.github.michaelboyles.simpledi;
+
+import javax.inject.Provider;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Holds the current instance of a {@link Refreshable} bean. A new instance is published with a release write, and
+ * {@link #get()} reads it with an acquire read, so a reader which sees the new instance also sees it fully
+ * constructed. Unlike a volatile read, an acquire read needs no fence on common hardware, so once compiled it costs the
+ * same as reading a plain field. This class is only expected to be used by the generated DI context.
+ *
+ * @param <T> The type of the bean.
+ */
+public class RefreshableProvider<T> implements Provider<T> {
+    private static final VarHandle VALUE;
+
+    static {
+        try {
+            VALUE = MethodHandles.lookup().findVarHandle(RefreshableProvider.class, "value", Object.class);
+        }
+        catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    @SuppressWarnings("unused") // Accessed via VALUE
+    private T value;
+
+    @SuppressWarnings("unused") // Called by generated code only
+    public void set(T value) {
+        if (value == null) throw new NullPointerException();
+        VALUE.setRelease(this, value);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get() {
+        return (T) VALUE.getAcquire(this);
+    }
+}
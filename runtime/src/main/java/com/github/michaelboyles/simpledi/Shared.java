@@ -0,0 +1,18 @@
+package com.github.michaelboyles.simpledi;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a {@link javax.inject.Singleton} as safe to share between several instances of the generated DI context, e.g.
+ * because it's stateless. Shared beans are created once by the context's {@code Template}, and every context created
+ * from that template reuses them, so only the other beans are created per context.
+ * <p>
+ * A shared bean can only depend on other shared beans.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.SOURCE)
+public @interface Shared {
+}
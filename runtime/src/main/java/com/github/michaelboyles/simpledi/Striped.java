@@ -0,0 +1,25 @@
+package com.github.michaelboyles.simpledi;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a {@link javax.inject.Singleton} which the DI context should create several instances of, so that threads
+ * using it contend less, e.g. for a buffer or a counter. Each thread is assigned one of the instances by a
+ * {@link StripedProvider}, which can also visit every instance to aggregate them.
+ * <p>
+ * Other beans must depend on a striped bean via a {@link javax.inject.Provider} or {@link StripedProvider}. Depending
+ * on it directly, or in a collection, is an error. A striped bean can't also be {@link Shared} or {@link Refreshable},
+ * or have event listeners.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.SOURCE)
+public @interface Striped {
+    /**
+     * The number of instances, which is rounded up to a power of two. By default, the number of available processors.
+     * A negative number is an error.
+     */
+    int value() default 0;
+}
@@ -0,0 +1,83 @@
+package com.github.michaelboyles.simpledi;
+
+import javax.inject.Provider;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+/**
+ * Holds the instances of a {@link Striped} bean, and provides each thread with one of them. A thread is assigned an
+ * instance by hashing its identity, much as {@link java.util.concurrent.atomic.LongAdder} assigns a thread to a cell,
+ * so different threads usually get different instances, and a thread always gets the same one. There is no thread
+ * local state, so it works the same for virtual threads, of which there may be millions. Instances aren't reassigned
+ * under contention, so a stripe may still be used by more than one thread at a time, and must be thread-safe.
+ * <p>
+ * This class is created by the generated DI context, but can be injected in place of a {@link Provider} to read
+ * across every stripe.
+ *
+ * @param <T> The type of the bean.
+ */
+public class StripedProvider<T> implements Provider<T> {
+    private final Object[] stripes;
+    private final int mask;
+
+    @SuppressWarnings("unused") // Called by generated code only
+    public StripedProvider() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    @SuppressWarnings("unused") // Called by generated code only
+    public StripedProvider(int stripeCount) {
+        if (stripeCount < 1) throw new IllegalArgumentException("Stripe count must be positive: " + stripeCount);
+        int size = stripeCount == 1 ? 1 : Integer.highestOneBit(stripeCount - 1) << 1;
+        this.stripes = new Object[size];
+        this.mask = size - 1;
+    }
+
+    @SuppressWarnings("unused") // Called by generated code only
+    public void fill(IntFunction<? extends T> factory) {
+        if (stripes[0] != null) throw new RuntimeException("Already filled");
+        for (int i = 0; i < stripes.length; ++i) {
+            T stripe = factory.apply(i);
+            if (stripe == null) throw new NullPointerException();
+            stripes[i] = stripe;
+        }
+    }
+
+    /**
+     * Get the instance assigned to the current thread.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get() {
+        int hash = System.identityHashCode(Thread.currentThread());
+        return (T) stripes[(hash ^ (hash >>> 16)) & mask];
+    }
+
+    /**
+     * Get the number of instances, which is a power of two.
+     */
+    public int stripeCount() {
+        return stripes.length;
+    }
+
+    /**
+     * Get every instance, e.g. to sum a striped counter.
+     */
+    @SuppressWarnings("unchecked")
+    public List<T> stripes() {
+        return Collections.unmodifiableList((List<T>) Arrays.asList(stripes));
+    }
+
+    /**
+     * Visit every instance.
+     */
+    @SuppressWarnings("unchecked")
+    public void forEachStripe(Consumer<? super T> action) {
+        for (Object stripe : stripes) {
+            action.accept((T) stripe);
+        }
+    }
+}
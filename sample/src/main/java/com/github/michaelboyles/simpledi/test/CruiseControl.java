@@ -0,0 +1,17 @@
+package com.github.michaelboyles.simpledi.test;
+
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+@Singleton
+public class CruiseControl {
+    private final Provider<SpeedLimiter> speedLimiter;
+
+    public CruiseControl(Provider<SpeedLimiter> speedLimiter) {
+        this.speedLimiter = speedLimiter;
+    }
+
+    public int targetSpeed(int requestedSpeed) {
+        return Math.min(requestedSpeed, speedLimiter.get().limit());
+    }
+}
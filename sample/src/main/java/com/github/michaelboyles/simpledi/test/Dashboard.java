@@ -0,0 +1,14 @@
+package com.github.michaelboyles.simpledi.test;
+
+import com.github.michaelboyles.simpledi.EventListener;
+
+import javax.inject.Singleton;
+
+@Singleton
+public class Dashboard {
+    @EventListener(async = true)
+    public void onEngineStarted(EngineStartedEvent event) {
+        String condition = event.engine().turbocharger().getCondition();
+        System.out.println("Engine started with turbocharger in condition " + condition);
+    }
+}
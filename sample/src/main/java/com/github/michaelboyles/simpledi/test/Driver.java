@@ -1,9 +1,16 @@
 package com.github.michaelboyles.simpledi.test;
 
+import com.github.michaelboyles.simpledi.EventListener;
+
 import javax.inject.Singleton;
 
 @Singleton
 public class Driver {
+    @EventListener
+    public void onEngineStarted(EngineStartedEvent event) {
+        System.out.println(this + " started the engine");
+    }
+
     @Override
     public String toString() {
         return "John Smith";
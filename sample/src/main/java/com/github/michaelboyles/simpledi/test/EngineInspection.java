@@ -0,0 +1,14 @@
+package com.github.michaelboyles.simpledi.test;
+
+import com.github.michaelboyles.simpledi.Shared;
+
+import javax.inject.Singleton;
+
+@Singleton
+@Shared
+public class EngineInspection implements Inspection<Engine> {
+    @Override
+    public String inspect(Engine engine) {
+        return "Turbocharger is " + engine.turbocharger().getCondition();
+    }
+}
@@ -0,0 +1,4 @@
+package com.github.michaelboyles.simpledi.test;
+
+public record EngineStartedEvent(Engine engine) {
+}
@@ -0,0 +1,5 @@
+package com.github.michaelboyles.simpledi.test;
+
+public interface Inspection<T> {
+    String inspect(T part);
+}
@@ -0,0 +1,10 @@
+package com.github.michaelboyles.simpledi.test;
+
+import com.github.michaelboyles.simpledi.Shared;
+
+import javax.inject.Singleton;
+
+@Singleton
+@Shared
+public record Mechanic(Inspection<Engine> engineInspection, Inspection<Seat> seatInspection) {
+}
@@ -0,0 +1,20 @@
+package com.github.michaelboyles.simpledi.test;
+
+import com.github.michaelboyles.simpledi.Striped;
+
+import javax.inject.Singleton;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Singleton
+@Striped
+public class Odometer {
+    private final AtomicLong distance = new AtomicLong();
+
+    public void add(long kilometres) {
+        distance.addAndGet(kilometres);
+    }
+
+    public long distance() {
+        return distance.get();
+    }
+}
@@ -0,0 +1,14 @@
+package com.github.michaelboyles.simpledi.test;
+
+import com.github.michaelboyles.simpledi.Shared;
+
+import javax.inject.Singleton;
+
+@Singleton
+@Shared
+public class SeatInspection implements Inspection<Seat> {
+    @Override
+    public String inspect(Seat seat) {
+        return "Seat at " + seat.getPosition() + " is fine";
+    }
+}
@@ -0,0 +1,11 @@
+package com.github.michaelboyles.simpledi.test;
+
+import com.github.michaelboyles.simpledi.ConfigValue;
+import com.github.michaelboyles.simpledi.Refreshable;
+
+import javax.inject.Singleton;
+
+@Singleton
+@Refreshable
+public record SpeedLimiter(@ConfigValue(value = "speed.limit", defaultValue = "70") int limit) {
+}
@@ -0,0 +1,22 @@
+package com.github.michaelboyles.simpledi.test;
+
+import com.github.michaelboyles.simpledi.StripedProvider;
+
+import javax.inject.Singleton;
+
+@Singleton
+public class TripComputer {
+    private final StripedProvider<Odometer> odometer;
+
+    public TripComputer(StripedProvider<Odometer> odometer) {
+        this.odometer = odometer;
+    }
+
+    public void record(long kilometres) {
+        odometer.get().add(kilometres);
+    }
+
+    public long totalDistance() {
+        return odometer.stripes().stream().mapToLong(Odometer::distance).sum();
+    }
+}
@@ -1,8 +1,11 @@
 package com.github.michaelboyles.simpledi.test;
 
+import com.github.michaelboyles.simpledi.Shared;
+
 import javax.inject.Singleton;
 
 @Singleton
+@Shared
 public class Turbocharger {
     public String getCondition() {
         return "Fair";
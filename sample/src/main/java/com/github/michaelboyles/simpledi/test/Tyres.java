@@ -0,0 +1,10 @@
+package com.github.michaelboyles.simpledi.test;
+
+import com.github.michaelboyles.simpledi.ConfigValue;
+
+import javax.inject.Singleton;
+
+@Singleton
+public record Tyres(@ConfigValue("tyres.pressure") TyrePressure pressure,
+                    @ConfigValue(value = "tyres.brand", defaultValue = "Generic") String brand) {
+}